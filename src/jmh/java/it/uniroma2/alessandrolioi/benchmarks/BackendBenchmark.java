@@ -0,0 +1,75 @@
+package it.uniroma2.alessandrolioi.benchmarks;
+
+import it.uniroma2.alessandrolioi.git.backends.GitCliBackend;
+import it.uniroma2.alessandrolioi.git.backends.GitHistoryBackend;
+import it.uniroma2.alessandrolioi.git.backends.GitJGitBackend;
+import it.uniroma2.alessandrolioi.git.exceptions.GitDiffException;
+import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
+import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitCommitStore;
+import it.uniroma2.alessandrolioi.git.models.GitPathIndex;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Bulk history mining of `repo` with the JGit backend and the git CLI backend (see Config.gitBackend)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BackendBenchmark {
+    // Working copy or bare mirror to measure (i.e. avro): required, `-p repo=/path/to/avro`
+    @Param("")
+    public String repo;
+    @Param({"jgit", "cli"})
+    public String backend;
+
+    private Repository repository;
+    private GitHistoryBackend history;
+    private GitCommitStore store;
+    private List<GitCommitEntry> commits;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() throws IOException, GitLogException {
+        // An empty path would silently measure the repository of the working directory
+        if (repo.isBlank()) throw new IllegalArgumentException("Missing repository: run with -p repo=/path/to/repository");
+        // Working copy (`repo/.git`) or bare repository, without searching the parent folders
+        File gitDir = RepositoryCache.FileKey.resolve(new File(repo), FS.DETECTED);
+        if (gitDir == null) throw new IllegalArgumentException("Not a git repository: %s".formatted(repo));
+        repository = new FileRepositoryBuilder().setGitDir(gitDir).setMustExist(true).build();
+        history = backend.equals("cli") ? new GitCliBackend(repository, "git") : new GitJGitBackend(repository);
+        store = history.getCommits();
+        commits = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) commits.add(new GitCommitEntry(store, i));
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        repository.close();
+    }
+
+    @Benchmark
+    public GitPathIndex pathIndex() throws GitLogException {
+        return history.getPathIndex(store);
+    }
+
+    @Benchmark
+    public Map<Integer, List<String>> modifiedClasses() throws GitDiffException {
+        return history.getModifiedClassesOfCommits(commits, pool);
+    }
+}
@@ -0,0 +1,130 @@
+package it.uniroma2.alessandrolioi.benchmarks;
+
+import it.uniroma2.alessandrolioi.common.Metric;
+import it.uniroma2.alessandrolioi.dataset.models.MetricMatrix;
+import it.uniroma2.alessandrolioi.git.models.GitCommitStore;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Retained heap of the models, compared with the models they replaced (measured with JOL)
+// Usage: Footprint commits <repository> | Footprint metrics <classes> <releases>
+public class Footprint {
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("commits")) {
+            commits(new File(args[1]));
+        } else if (args.length == 3 && args[0].equals("metrics")) {
+            metrics(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        } else {
+            System.err.println("Usage: Footprint commits <repository> | Footprint metrics <classes> <releases>");
+            System.exit(1);
+        }
+    }
+
+    // Commit store against the list of eagerly built entries (the model before GitCommitStore)
+    private static void commits(File folder) throws IOException {
+        List<RevCommit> commits = new ArrayList<>();
+        try (Repository repository = new FileRepositoryBuilder().findGitDir(folder).build();
+             RevWalk walk = new RevWalk(repository)) {
+            for (Ref ref : repository.getRefDatabase().getRefs()) {
+                ObjectId id = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+                if (id != null && walk.peel(walk.parseAny(id)) instanceof RevCommit commit) walk.markStart(commit);
+            }
+            walk.sort(RevSort.COMMIT_TIME_DESC);
+            for (RevCommit commit : walk) commits.add(commit);
+        }
+        Collections.reverse(commits);
+
+        List<LegacyCommitEntry> legacy = new ArrayList<>(commits.size());
+        for (RevCommit commit : commits) {
+            LocalDateTime date = LocalDateTime.ofInstant(commit.getCommitterIdent().getWhenAsInstant(), commit.getCommitterIdent().getZoneId());
+            List<RevTree> parents = Arrays.stream(commit.getParents()).map(RevCommit::getTree).toList();
+            legacy.add(new LegacyCommitEntry(commit.getName(), commit.getShortMessage(), date,
+                    commit.getAuthorIdent().getName(), commit.getTree(), parents));
+        }
+        // Messages are loaded on request: the loader is not part of the measured store
+        GitCommitStore store = new GitCommitStore(commits, (count, ids, action) -> { });
+        commits.clear();
+
+        report("commits (%d)".formatted(store.size()), GraphLayout.parseInstance(legacy).totalSize(), GraphLayout.parseInstance(store).totalSize());
+    }
+
+    // Metric matrix against the map of entries with a string for every metric (the model before MetricMatrix).
+    // Class names are not measured: the path dictionary holds them in both models
+    private static void metrics(int classes, int releases) {
+        List<String> names = new ArrayList<>(classes);
+        for (int i = 0; i < classes; i++) names.add("src/main/java/org/example/module%d/Class%d.java".formatted(i % 40, i));
+
+        Random random = new Random(42);
+        Map<String, List<LegacyDatasetEntry>> legacy = new HashMap<>();
+        MetricMatrix matrix = new MetricMatrix(classes, releases);
+        for (int c = 0; c < classes; c++) {
+            List<LegacyDatasetEntry> entries = new ArrayList<>(releases);
+            for (int r = 0; r < releases; r++) {
+                LegacyDatasetEntry entry = new LegacyDatasetEntry();
+                for (Metric metric : Metric.values()) {
+                    long value = random.nextInt(2000);
+                    entry.metrics.put(metric, String.valueOf(value));
+                    matrix.set(c, r, metric, value);
+                }
+                if (random.nextInt(10) == 0) {
+                    entry.buggy = true;
+                    matrix.setBuggy(c, r);
+                }
+                entries.add(entry);
+            }
+            legacy.put(names.get(c), entries);
+        }
+
+        long before = GraphLayout.parseInstance(legacy).subtract(GraphLayout.parseInstance(names)).totalSize();
+        report("metrics (%dx%d)".formatted(classes, releases), before, GraphLayout.parseInstance(matrix).totalSize());
+    }
+
+    private static void report(String model, long before, long after) {
+        System.out.printf("%-24s before: %,12d bytes   after: %,12d bytes   (%.1fx smaller)%n", model, before, after, (double) before / after);
+    }
+
+    // Dataset entry before the matrix: the value of every metric as a string
+    private static final class LegacyDatasetEntry {
+        private final Map<Metric, String> metrics = new EnumMap<>(Metric.class);
+        private boolean buggy;
+    }
+
+    // Commit entry before the store: every field is built when the log is read
+    private static final class LegacyCommitEntry {
+        private final String hash;
+        private final String message;
+        private final LocalDateTime commitDate;
+        private final String author;
+        private final RevTree tree;
+        private final List<RevTree> parents;
+
+        private LegacyCommitEntry(String hash, String message, LocalDateTime commitDate, String author,
+                                  RevTree tree, List<RevTree> parents) {
+            this.hash = hash;
+            this.message = message;
+            this.commitDate = commitDate;
+            this.author = author;
+            this.tree = tree;
+            this.parents = parents;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package it.uniroma2.alessandrolioi.benchmarks;
+
+import it.uniroma2.alessandrolioi.jira.controllers.JiraIssueController;
+import it.uniroma2.alessandrolioi.jira.exceptions.JiraRestException;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+import it.uniroma2.alessandrolioi.jira.stub.JiraStubServer;
+import it.uniroma2.alessandrolioi.jira.stub.JiraStubSettings;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Parse of a search page of `issues` issues (recorded from the JiraStubServer):
+// the org.json tree (before user-015) against the streaming parser of JiraIssueController
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JiraPageBenchmark {
+    private static final LocalDate LAST_VERSION = LocalDate.of(2030, 1, 1);
+
+    @Param("1000")
+    public int issues;
+
+    private String page;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        JiraStubServer stub = new JiraStubServer(new JiraStubSettings(0, 1, 0, issues, 0, issues, 40, null, null));
+        stub.start();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(stub.url() + "/rest/api/2/search?jql=project=BENCH&startAt=0&maxResults=" + issues)).build();
+            page = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).body();
+        } finally {
+            stub.stop();
+        }
+    }
+
+    @Benchmark
+    public List<JiraIssue> streaming() throws JiraRestException {
+        return new JiraIssueController().parseIssues(page, LAST_VERSION);
+    }
+
+    @Benchmark
+    public List<JiraIssue> tree() {
+        List<JiraIssue> parsed = new ArrayList<>();
+        JSONObject result = new JSONObject(page);
+        JSONArray jsonIssues = result.getJSONArray("issues");
+        for (int i = 0; i < jsonIssues.length(); i++) {
+            JSONObject jsonIssue = jsonIssues.getJSONObject(i);
+            JSONObject fields = jsonIssue.getJSONObject("fields");
+            if (!jsonIssue.has(JiraIssue.KEY_FIELD) || !fields.has(JiraIssue.RESOLUTION_DATE_FIELD) || !fields.has(JiraIssue.CREATED_FIELD))
+                continue;
+            String key = jsonIssue.getString(JiraIssue.KEY_FIELD);
+            LocalDate resolution = LocalDate.parse(fields.getString(JiraIssue.RESOLUTION_DATE_FIELD).substring(0, 10));
+            LocalDate created = LocalDate.parse(fields.getString(JiraIssue.CREATED_FIELD).substring(0, 10));
+            Optional<LocalDate> fix = versions(fields.getJSONArray(JiraIssue.FIX_VERSIONS_FIELD)).stream().max(Comparator.naturalOrder());
+            if (fix.isPresent() && fix.get().isAfter(created) && !fix.get().isAfter(LAST_VERSION))
+                resolution = fix.get();
+            List<LocalDate> affectedVersions = versions(fields.getJSONArray(JiraIssue.VERSIONS_FIELD));
+            affectedVersions.sort(Comparator.naturalOrder());
+            parsed.add(new JiraIssue(key, resolution, created, affectedVersions));
+        }
+        return parsed;
+    }
+
+    private List<LocalDate> versions(JSONArray array) {
+        List<LocalDate> versions = new ArrayList<>();
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject o = array.getJSONObject(i);
+            if (o.has(JiraVersion.RELEASE_DATE_FIELD)) versions.add(LocalDate.parse(o.getString(JiraVersion.RELEASE_DATE_FIELD)));
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,96 @@
+package it.uniroma2.alessandrolioi.benchmarks;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.git.controllers.GitLineDiffController;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Added and deleted lines of the files modified by the last `commits` commits (first parent) of `repo`:
+// the patch built by DiffFormatter (before user-010) against GitLineDiffController
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineDiffBenchmark {
+    // Working copy or bare mirror to measure (i.e. avro): required, `-p repo=/path/to/avro`
+    @Param("")
+    public String repo;
+    @Param("500")
+    public int commits;
+
+    private Repository repository;
+    private ObjectReader reader;
+    private DiffFormatter formatter;
+    private GitLineDiffController lineDiff;
+    private List<DiffEntry> entries;
+
+    @Setup
+    public void setup() throws IOException {
+        // An empty path would silently measure the repository of the working directory
+        if (repo.isBlank()) throw new IllegalArgumentException("Missing repository: run with -p repo=/path/to/repository");
+        // Working copy (`repo/.git`) or bare repository, without searching the parent folders
+        File gitDir = RepositoryCache.FileKey.resolve(new File(repo), FS.DETECTED);
+        if (gitDir == null) throw new IllegalArgumentException("Not a git repository: %s".formatted(repo));
+        repository = new FileRepositoryBuilder().setGitDir(gitDir).setMustExist(true).build();
+        reader = repository.newObjectReader();
+        formatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+        formatter.setReader(reader, repository.getConfig());
+        lineDiff = new GitLineDiffController();
+        entries = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(reader)) {
+            RevCommit commit = walk.parseCommit(repository.resolve("HEAD"));
+            for (int i = 0; i < commits && commit.getParentCount() > 0; i++) {
+                RevCommit parent = walk.parseCommit(commit.getParent(0));
+                for (DiffEntry entry : formatter.scan(parent.getTree(), commit.getTree())) {
+                    if (entry.getChangeType() == DiffEntry.ChangeType.MODIFY) entries.add(entry);
+                }
+                commit = parent;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        formatter.close();
+        reader.close();
+        repository.close();
+    }
+
+    @Benchmark
+    public long fileHeader() throws IOException {
+        long lines = 0;
+        for (DiffEntry entry : entries) {
+            for (Edit edit : formatter.toFileHeader(entry).toEditList())
+                lines += edit.getLengthA() + edit.getLengthB();
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public long lineDiff() throws IOException {
+        long lines = 0;
+        for (DiffEntry entry : entries) {
+            Pair<Integer, Integer> addedAndDeleted = lineDiff.countAddedAndDeleted(reader, entry);
+            lines += addedAndDeleted.first() + addedAndDeleted.second();
+        }
+        return lines;
+    }
+}
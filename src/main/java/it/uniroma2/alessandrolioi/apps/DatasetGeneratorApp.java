@@ -1,20 +1,20 @@
 package it.uniroma2.alessandrolioi.apps;
 
+import it.uniroma2.alessandrolioi.common.CachePaths;
 import it.uniroma2.alessandrolioi.common.Pair;
 import it.uniroma2.alessandrolioi.common.Projects;
 import it.uniroma2.alessandrolioi.dataset.DatasetBuilder;
 import it.uniroma2.alessandrolioi.git.Git;
-import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
 import it.uniroma2.alessandrolioi.integration.JiraGitIntegration;
 import it.uniroma2.alessandrolioi.jira.Jira;
-import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+import it.uniroma2.alessandrolioi.jira.JiraColdStart;
+import it.uniroma2.alessandrolioi.jira.exceptions.JiraRestException;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -23,43 +23,45 @@ public class DatasetGeneratorApp {
     private static final Logger logger = Logger.getLogger("DatasetGenerator");
 
     public static void main(String[] args) throws IOException {
+        JiraColdStart coldStart;
+        try {
+            coldStart = new JiraColdStart(CachePaths.coldStart());
+        } catch (JiraRestException e) {
+            if (logger.isLoggable(Level.SEVERE))
+                logger.severe(e.getMessage());
+            return;
+        }
         for (int i = 0; i < Projects.names().length; i++) {
             String project = Projects.names()[i];
             String other = Projects.names()[Projects.names().length - i - 1];
             List<String> coldStarts = new ArrayList<>(Arrays.asList(Projects.coldStarts()));
             coldStarts.add(other);
 
-            projectGeneration(project, Projects.additionalParams()[i], coldStarts);
+            projectGeneration(project, Projects.additionalParams()[i], coldStarts, coldStart);
         }
     }
 
-    private static void projectGeneration(String project, String additionalParams, List<String> coldStartProjects) throws IOException {
+    private static void projectGeneration(String project, String additionalParams, List<String> coldStartProjects, JiraColdStart coldStart) throws IOException {
         Git git = null;
         try {
             Jira jiraProject = new Jira(project, additionalParams);
-            List<Double> coldStarts = new ArrayList<>();
-            for (String coldStartProject : coldStartProjects) {
-                Jira jiraColdStartProject = new Jira(coldStartProject, "");
-                double coldStart = jiraColdStartProject.calculateColdStart();
-                coldStarts.add(coldStart);
-            }
-            coldStarts.sort(Comparator.naturalOrder());
-            // Get Median
-            jiraProject.applyProportion(coldStarts.get(coldStarts.size() / 2));
+            // Median of the cold start projects (each one is computed only once)
+            jiraProject.applyProportion(coldStart.median(coldStartProjects));
 
             Path projectPath = Paths.get(project);
             if (projectPath.toFile().exists() && projectPath.resolve(".git").toFile().exists())
                 git = new Git(project);
             else
-                git = new Git(project, "https://github.com/apache/%s".formatted(project), "master");
+                git = new Git(CachePaths.fromProject(project).resolve("mirror.git").toFile(), "https://github.com/apache/%s".formatted(project), "master");
+            // Blobs already processed in a previous run are not read again
+            git.useCache(CachePaths.fromProject(project));
 
             if (logger.isLoggable(Level.INFO))
                 logger.info("Loading integration between Jira and Git");
-            JiraGitIntegration integration = new JiraGitIntegration(git.getCommits());
+            JiraGitIntegration integration = new JiraGitIntegration(git);
             integration.findRevisions(jiraProject.getVersions());
 
-            for (Pair<JiraVersion, GitCommitEntry> version : integration.versions())
-                git.loadClassesOfRevision(version.second());
+            git.loadClassesOfRevisions(integration.versions().stream().map(Pair::second).toList());
 
             if (logger.isLoggable(Level.INFO))
                 logger.info("Creating dataset");
@@ -76,8 +78,7 @@ public class DatasetGeneratorApp {
             if (logger.isLoggable(Level.SEVERE))
                 logger.severe(e.getMessage());
         } finally {
-            if (git != null && !git.close() && logger.isLoggable(Level.SEVERE))
-                logger.severe("Could not clean git repository for %s".formatted(project));
+            if (git != null) git.close();
         }
     }
 }
@@ -0,0 +1,39 @@
+package it.uniroma2.alessandrolioi.apps;
+
+import it.uniroma2.alessandrolioi.jira.stub.JiraStubServer;
+import it.uniroma2.alessandrolioi.jira.stub.JiraStubSettings;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Runs a local Jira stand-in until the process is stopped; the other apps use it with `-Djira.url=http://localhost:<port>`
+public class JiraStubApp {
+    private static final Logger logger = Logger.getLogger("JiraStub");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String recorded = System.getProperty("stub.recorded");
+        JiraStubSettings settings = new JiraStubSettings(
+                Integer.getInteger("stub.port", 8080),
+                Integer.getInteger("stub.threads", 16),
+                Long.getLong("stub.latency", 0),
+                Integer.getInteger("stub.pageSize", 1000),
+                Double.parseDouble(System.getProperty("stub.errorRate", "0")),
+                Integer.getInteger("stub.issues", 1000),
+                Integer.getInteger("stub.versions", 20),
+                recorded != null ? Path.of(recorded) : null,
+                System.getProperty("stub.recordedUrl", "https://issues.apache.org/jira"));
+        JiraStubServer server = new JiraStubServer(settings);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            stopped.countDown();
+        }));
+        server.start();
+        if (logger.isLoggable(Level.INFO))
+            logger.info("Use -Djira.url=%s to load data from the stub".formatted(server.url()));
+        stopped.await();
+    }
+}
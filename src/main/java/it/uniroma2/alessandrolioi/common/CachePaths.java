@@ -0,0 +1,24 @@
+package it.uniroma2.alessandrolioi.common;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class CachePaths {
+    private CachePaths() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static Path fromProject(String project) {
+        return Paths.get("cache", project);
+    }
+
+    // Responses of Jira are shared by every project
+    public static Path jira() {
+        return Paths.get("cache", "jira");
+    }
+
+    // Cold start proportions are shared by every project
+    public static Path coldStart() {
+        return Paths.get("cache", "coldstart.properties");
+    }
+}
@@ -0,0 +1,68 @@
+package it.uniroma2.alessandrolioi.common;
+
+// Settings read from the system properties (e.g. `-Dgit.backend=cli`)
+public class Config {
+    private Config() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    // Implementation used to read the history of the repository: `jgit` (default) or `cli` (local git binary)
+    public static String gitBackend() {
+        return System.getProperty("git.backend", "jgit");
+    }
+
+    // Executable used by the `cli` backend
+    public static String gitBinary() {
+        return System.getProperty("git.binary", "git");
+    }
+
+    // Blobs bigger than this (in bytes) are not diffed line by line (same default of JGit core.bigFileThreshold)
+    public static int gitDiffBigFileThreshold() {
+        return Integer.getInteger("git.diff.bigFileThreshold", 50 * 1024 * 1024);
+    }
+
+    // Base URL of the Jira instance (i.e. a local JiraStubServer)
+    public static String jiraUrl() {
+        return System.getProperty("jira.url", "https://issues.apache.org/jira");
+    }
+
+    // Maximum number of Jira pages loaded at the same time
+    public static int jiraParallelism() {
+        return Integer.getInteger("jira.parallelism", 8);
+    }
+
+    // Maximum number of requests per second sent to Jira (not limited if 0)
+    public static double jiraRequestsPerSecond() {
+        return Double.parseDouble(System.getProperty("jira.rate", "10"));
+    }
+
+    // Number of times a request to Jira is sent again after a transient failure
+    public static int jiraRetries() {
+        return Integer.getInteger("jira.retries", 5);
+    }
+
+    // Whether the responses of Jira are saved on disk (see CachePaths.jira)
+    public static boolean jiraCache() {
+        return Boolean.parseBoolean(System.getProperty("jira.cache", "true"));
+    }
+
+    // Seconds after which a cached response of Jira is revalidated with the server
+    public static long jiraCacheTtl() {
+        return Long.getLong("jira.cache.ttl", 24 * 60 * 60L);
+    }
+
+    // Only the cached responses of Jira are used, without any request
+    public static boolean jiraOffline() {
+        return Boolean.getBoolean("jira.offline");
+    }
+
+    // Whether the issues of the cold start projects are loaded with a single query
+    public static boolean jiraBatch() {
+        return Boolean.parseBoolean(System.getProperty("jira.batch", "true"));
+    }
+
+    // Maximum number of metric work items (see MetricScheduler) executed at the same time (at least 1)
+    public static int metricParallelism() {
+        return Math.max(1, Integer.getInteger("metric.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -1,16 +1,18 @@
 package it.uniroma2.alessandrolioi.dataset;
 
+import it.uniroma2.alessandrolioi.common.Config;
 import it.uniroma2.alessandrolioi.common.Pair;
 import it.uniroma2.alessandrolioi.dataset.controllers.BuggyController;
-import it.uniroma2.alessandrolioi.dataset.controllers.MetricController;
+import it.uniroma2.alessandrolioi.dataset.controllers.MetricScheduler;
 import it.uniroma2.alessandrolioi.dataset.controllers.WriterController;
 import it.uniroma2.alessandrolioi.dataset.exceptions.BuggyException;
 import it.uniroma2.alessandrolioi.dataset.exceptions.DatasetWriterException;
 import it.uniroma2.alessandrolioi.dataset.exceptions.MetricException;
-import it.uniroma2.alessandrolioi.dataset.models.DatasetEntry;
-import it.uniroma2.alessandrolioi.dataset.models.MetricValue;
+import it.uniroma2.alessandrolioi.dataset.models.MetricMatrix;
 import it.uniroma2.alessandrolioi.git.Git;
+import it.uniroma2.alessandrolioi.git.models.GitClassList;
 import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitPathDictionary;
 import it.uniroma2.alessandrolioi.integration.JiraGitIntegration;
 import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
 import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
@@ -24,67 +26,58 @@ public class DatasetBuilder {
 
     // Provides functionality to explore the git repository to calculate metrics
     private final Git git;
+    // Ids (in the path dictionary of `git`) of the classes of every release
+    private final GitPathDictionary classes;
+    private final BitSet classIds;
 
-    // Maps class name to its metrics. i-th element in the list is the entry for the i-th version
-    private final Map<String, List<DatasetEntry>> entries;
+    // Metrics of every class (by id) in every release
+    private final MetricMatrix matrix;
 
     public DatasetBuilder(JiraGitIntegration integration, Git git) {
         this.git = git;
-        this.entries = new HashMap<>();
+        this.classes = git.getPathDictionary();
+        this.classIds = new BitSet();
         this.issues = integration.issues();
         this.versions = integration.versions();
 
-        // Initialize `revisions`
+        // Initialize `classIds` with the classes of every revision
         for (Pair<JiraVersion, GitCommitEntry> version : this.versions) {
-            GitCommitEntry revision = version.second();
-
-            // Initialize `entries` map
-            for (String aClass : revision.classList()) {
-                List<DatasetEntry> datasetEntries = new ArrayList<>();
-                for (int i = 0; i < this.versions.size(); i++)
-                    datasetEntries.add(i, new DatasetEntry());
-                entries.put(aClass, datasetEntries);
-            }
+            GitClassList classList = version.second().classList();
+            for (int i = 0; i < classList.size(); i++)
+                classIds.set(classList.idAt(i));
         }
+        this.matrix = new MetricMatrix(classIds.length(), this.versions.size());
     }
 
     public void applyMetrics() throws MetricException {
-        MetricController controller = new MetricController();
-        controller.applyLOCMetric(git, versions, this::applyMetric);
-        controller.applyDifferenceMetric(git, versions, this::applyMetric);
-        controller.applyCumulativeMetric(git, versions, this::applyMetric);
-        controller.applyListMetric(git, versions, issues, this::applyMetric);
+        // Metric families (and their releases) are computed concurrently
+        MetricScheduler scheduler = new MetricScheduler(Config.metricParallelism());
+        scheduler.applyMetrics(git, versions, issues, matrix::set);
     }
 
     public void setBuggy(int lastVersion) throws BuggyException {
         BuggyController controller = new BuggyController();
         List<Pair<JiraVersion, GitCommitEntry>> subList = versions.subList(0, lastVersion);
         controller.calculateBuggy(git, subList, issues, buggy -> {
-            buggy.first().stream().filter(entries::containsKey).forEach(aClass -> {
+            for (String aClass : buggy.first()) {
+                int classId = classes.find(aClass);
+                if (classId == -1 || !classIds.get(classId)) continue;
                 for (int version : buggy.second())
-                    entries.get(aClass).get(version).setBuggy(true);
-            });
+                    matrix.setBuggy(classId, version);
+            }
             return null;
         });
     }
 
     public void writeToFile(String project, int numberOfVersions) throws DatasetWriterException {
         WriterController controller = new WriterController();
-        String text = controller.writeToText(versions, entries, numberOfVersions);
+        String text = controller.writeToText(versions, matrix, numberOfVersions);
         controller.writeToFile(project, text, String.valueOf(numberOfVersions));
     }
 
     public void writeOracle(String project, int numberOfVersions) throws DatasetWriterException {
         WriterController controller = new WriterController();
-        String text = controller.writeToText(versions, entries, numberOfVersions);
+        String text = controller.writeToText(versions, matrix, numberOfVersions);
         controller.writeToFile(project, text, "oracle");
     }
-
-    private Void applyMetric(MetricValue metric) {
-        entries.get(metric.aClass())
-                .get(metric.version())
-                .metrics()
-                .put(metric.metric(), String.valueOf(metric.value()));
-        return null;
-    }
 }
@@ -18,6 +18,8 @@ public class BuggyController {
                                Map<JiraIssue, GitCommitEntry> issues,
                                Function<Pair<List<String>, int[]>, Void> func) throws BuggyException {
         try {
+            // Modified classes of every fix commit, computed once for all the snapshots
+            git.loadModifiedClassesOfCommits(issues.values());
             // For every version (after the first)
             for (int i = 1; i < versions.size(); i++) {
                 Pair<JiraVersion, GitCommitEntry> current = versions.get(i);
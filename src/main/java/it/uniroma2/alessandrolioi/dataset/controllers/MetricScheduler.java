@@ -0,0 +1,90 @@
+package it.uniroma2.alessandrolioi.dataset.controllers;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.dataset.exceptions.MetricException;
+import it.uniroma2.alessandrolioi.dataset.models.MetricSink;
+import it.uniroma2.alessandrolioi.git.Git;
+import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
+import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Computes the metric families concurrently, split in work items (a release, or a chunk of its classes for the LOC).
+// Work items write disjoint cells of the sink, so the result does not depend on the order of execution.
+// The pool is separate from the one of Git: work items wait for the differences computed there
+public class MetricScheduler {
+    // Classes of a release whose LOC is computed by a single work item
+    private static final int LOC_CHUNK = 256;
+
+    private final int parallelism;
+
+    public MetricScheduler(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void applyMetrics(Git git, List<Pair<JiraVersion, GitCommitEntry>> versions,
+                             Map<JiraIssue, GitCommitEntry> issues, MetricSink sink) throws MetricException {
+        GitCommitEntry first;
+        try {
+            first = git.getFirstCommit();
+        } catch (GitLogException e) {
+            throw new MetricException("Could not get first commit", e);
+        }
+
+        MetricController controller = new MetricController();
+        List<MetricTask> tasks = new ArrayList<>();
+        for (int i = 0; i < versions.size(); i++) {
+            int release = i;
+            Pair<JiraVersion, GitCommitEntry> current = versions.get(i);
+            // Revision of the previous release (the first commit for the first release)
+            GitCommitEntry previous = i == 0 ? first : versions.get(i - 1).second();
+            int classes = current.second().classList().size();
+            for (int from = 0; from < classes; from += LOC_CHUNK) {
+                int fromClass = from;
+                int toClass = Math.min(from + LOC_CHUNK, classes);
+                tasks.add(() -> controller.applyLOCMetric(git, current.second(), release, fromClass, toClass, sink));
+            }
+            tasks.add(() -> controller.applyDifferenceMetric(git, previous, current.second(), release, sink));
+            tasks.add(() -> controller.applyCumulativeMetric(git, previous, current.second(), release, sink));
+            tasks.add(() -> controller.applyListMetric(git, previous, current, issues, release, sink));
+        }
+        run(tasks);
+    }
+
+    private void run(List<MetricTask> tasks) throws MetricException {
+        if (tasks.isEmpty()) return;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (MetricTask task : tasks) {
+                futures.add(executor.submit(() -> {
+                    task.run();
+                    return null;
+                }));
+            }
+            // Waiting for every work item also makes its writes visible to this thread
+            for (Future<Void> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetricException("Interrupted while computing metrics", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MetricException cause) throw cause;
+            throw new MetricException("Could not compute metrics", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface MetricTask {
+        void run() throws MetricException;
+    }
+}
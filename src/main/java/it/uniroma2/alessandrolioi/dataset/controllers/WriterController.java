@@ -3,8 +3,9 @@ package it.uniroma2.alessandrolioi.dataset.controllers;
 import it.uniroma2.alessandrolioi.common.DatasetPaths;
 import it.uniroma2.alessandrolioi.common.Pair;
 import it.uniroma2.alessandrolioi.dataset.exceptions.DatasetWriterException;
-import it.uniroma2.alessandrolioi.dataset.models.DatasetEntry;
+import it.uniroma2.alessandrolioi.dataset.models.MetricMatrix;
 import it.uniroma2.alessandrolioi.common.Metric;
+import it.uniroma2.alessandrolioi.git.models.GitClassList;
 import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
 import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
 
@@ -14,17 +15,16 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class WriterController {
     public String writeToText(List<Pair<JiraVersion, GitCommitEntry>> revisions,
-                              Map<String, List<DatasetEntry>> entries, int numberOfVersions) {
+                              MetricMatrix matrix, int numberOfVersions) {
         String header = writeHeader();
         List<String> values = new ArrayList<>();
         for (int i = 0; i < numberOfVersions; i++) {
-            GitCommitEntry revision = revisions.get(i).second();
-            for (String aClass : revision.classList()) {
-                String value = writeEntry(i, aClass, entries.get(aClass).get(i));
+            GitClassList classList = revisions.get(i).second().classList();
+            for (int j = 0; j < classList.size(); j++) {
+                String value = writeEntry(i, classList.get(j), classList.idAt(j), matrix);
                 values.add(value);
             }
         }
@@ -47,10 +47,11 @@ public class WriterController {
         return "Version,File_Name,%s,Buggy".formatted(String.join(",", metrics));
     }
 
-    private String writeEntry(int version, String className, DatasetEntry entry) {
-        List<String> metrics = new ArrayList<>();
+    private String writeEntry(int version, String className, int classId, MetricMatrix matrix) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(version + 1).append(',').append(className);
         for (Metric value : Metric.values())
-            metrics.add(entry.metrics().get(value));
-        return "%d,%s,%s,%s".formatted(version + 1, className, String.join(",", metrics), entry.isBuggy());
+            entry.append(',').append(matrix.get(classId, version, value));
+        return entry.append(',').append(matrix.isBuggy(classId, version)).toString();
     }
 }
@@ -0,0 +1,51 @@
+package it.uniroma2.alessandrolioi.dataset.models;
+
+import it.uniroma2.alessandrolioi.common.Metric;
+
+import java.util.BitSet;
+
+// Columnar store of the dataset: one column for every metric, where the cell of (class, release)
+// is at `class * releases + release` (classes are the ids of the path dictionary).
+// Metrics can be set by concurrent threads, as long as every cell is set by a single one (the buggy flags are not thread-safe)
+public final class MetricMatrix {
+    private final int classes;
+    private final int releases;
+    private final long[][] columns;
+    private final BitSet buggy;
+
+    public MetricMatrix(int classes, int releases) {
+        this.classes = classes;
+        this.releases = releases;
+        int cells = Math.multiplyExact(classes, releases);
+        this.columns = new long[Metric.values().length][cells];
+        this.buggy = new BitSet(cells);
+    }
+
+    public void set(int classId, int release, Metric metric, long value) {
+        columns[metric.ordinal()][cell(classId, release)] = value;
+    }
+
+    public long get(int classId, int release, Metric metric) {
+        return columns[metric.ordinal()][cell(classId, release)];
+    }
+
+    public void setBuggy(int classId, int release) {
+        buggy.set(cell(classId, release));
+    }
+
+    public boolean isBuggy(int classId, int release) {
+        return buggy.get(cell(classId, release));
+    }
+
+    public int classes() {
+        return classes;
+    }
+
+    public int releases() {
+        return releases;
+    }
+
+    private int cell(int classId, int release) {
+        return classId * releases + release;
+    }
+}
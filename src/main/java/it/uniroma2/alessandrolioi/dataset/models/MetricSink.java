@@ -0,0 +1,9 @@
+package it.uniroma2.alessandrolioi.dataset.models;
+
+import it.uniroma2.alessandrolioi.common.Metric;
+
+// Receives the value of a metric for a class (id of the path dictionary) in a release
+@FunctionalInterface
+public interface MetricSink {
+    void accept(int classId, int release, Metric metric, long value);
+}
@@ -1,42 +1,85 @@
 package it.uniroma2.alessandrolioi.git;
 
-import it.uniroma2.alessandrolioi.git.controllers.GitCommitController;
-import it.uniroma2.alessandrolioi.git.controllers.GitDiffController;
+import it.uniroma2.alessandrolioi.common.Config;
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.git.backends.GitCliBackend;
+import it.uniroma2.alessandrolioi.git.backends.GitHistoryBackend;
+import it.uniroma2.alessandrolioi.git.backends.GitJGitBackend;
 import it.uniroma2.alessandrolioi.git.controllers.GitRepoController;
 import it.uniroma2.alessandrolioi.git.exceptions.GitDiffException;
 import it.uniroma2.alessandrolioi.git.exceptions.GitFileException;
 import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
 import it.uniroma2.alessandrolioi.git.exceptions.GitRepoException;
 import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitCommitStore;
+import it.uniroma2.alessandrolioi.git.models.GitCommitTimeline;
+import it.uniroma2.alessandrolioi.git.models.GitDiffCache;
 import it.uniroma2.alessandrolioi.git.models.GitDiffEntry;
+import it.uniroma2.alessandrolioi.git.models.GitLineCache;
+import it.uniroma2.alessandrolioi.git.models.GitPathDictionary;
+import it.uniroma2.alessandrolioi.git.models.GitPathIndex;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Git {
     static final Logger logger = Logger.getLogger("Git");
+    private static final String LINE_CACHE = "lines.bin";
+    private static final String DIFF_CACHE = "diffs.bin";
+    private static final int DIFF_CACHE_CAPACITY = 1 << 16;
 
-    private final File folder;
     private final Repository repository;
+    // Implementation reading the history of `repository` (selected with `git.backend`)
+    private final GitHistoryBackend backend;
+    private final GitCommitStore store;
+    // Commits in ascending order of commit date (views over `store`)
     private final List<GitCommitEntry> commits;
+    // Commit dates, used to find the commits of a date range
+    private final GitCommitTimeline timeline;
+    // Paths of the classes of every loaded revision
+    private final GitPathDictionary paths;
+    // Maps the ordinal of a commit to the classes it modified
+    private final Map<Integer, List<String>> modifiedClasses;
+    // Commits reachable from every revision used in a range query (by ordinal of the revision)
+    private final Map<Integer, BitSet> reachable;
+    // Lazily built: maps every class to the commits touching it
+    private GitPathIndex pathIndex;
+    // Number of lines of every blob already counted
+    private final GitLineCache lineCache;
+    // Added and deleted lines of every pair of blobs already compared
+    private final GitDiffCache diffCache;
+    // Folder where the caches are persisted across runs (null if they are not persisted)
+    private Path cacheFolder;
+    // Workers used to compute the differences in parallel
+    private final ForkJoinPool pool;
 
-    // Remote Repository
-    public Git(String project, String url, String branch) throws GitRepoException, GitLogException {
+    // Remote Repository (kept as a bare mirror in `mirror`, updated at every run)
+    public Git(File mirror, String url, String branch) throws GitRepoException, GitLogException {
         if (logger.isLoggable(Level.INFO))
-            logger.info("Cloning remote repository (this might take a while)...");
+            logger.info("Updating mirror of remote repository (the first time might take a while)...");
         GitRepoController repoController = new GitRepoController();
-        GitCommitController commitController = new GitCommitController();
 
-        this.folder = new File(project);
-        this.repository = repoController.cloneRemote(folder, url, branch);
-        this.commits = commitController.getCommits(repository);
+        this.repository = repoController.openMirror(mirror, url, branch);
+        this.backend = createBackend(repository);
+        this.store = backend.getCommits();
+        this.commits = new CommitList(store);
+        this.timeline = new GitCommitTimeline(store);
+        this.paths = new GitPathDictionary();
+        this.modifiedClasses = new ConcurrentHashMap<>();
+        this.reachable = new ConcurrentHashMap<>();
+        this.lineCache = new GitLineCache();
+        this.diffCache = new GitDiffCache(DIFF_CACHE_CAPACITY, Config.gitDiffBigFileThreshold());
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
         if (logger.isLoggable(Level.INFO))
-            logger.info("Repository successfully cloned");
+            logger.info("Mirror successfully updated");
     }
 
     // Local Repository
@@ -44,60 +87,186 @@ public class Git {
         if (logger.isLoggable(Level.INFO))
             logger.info("Loading local repository");
         GitRepoController repoController = new GitRepoController();
-        GitCommitController commitController = new GitCommitController();
 
-        this.folder = new File(folderPath);
-        this.repository = repoController.loadLocal(folder);
-        this.commits = commitController.getCommits(repository);
+        this.repository = repoController.loadLocal(new File(folderPath));
+        this.backend = createBackend(repository);
+        this.store = backend.getCommits();
+        this.commits = new CommitList(store);
+        this.timeline = new GitCommitTimeline(store);
+        this.paths = new GitPathDictionary();
+        this.modifiedClasses = new ConcurrentHashMap<>();
+        this.reachable = new ConcurrentHashMap<>();
+        this.lineCache = new GitLineCache();
+        this.diffCache = new GitDiffCache(DIFF_CACHE_CAPACITY, Config.gitDiffBigFileThreshold());
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
         if (logger.isLoggable(Level.INFO))
             logger.info("Repository successfully loaded");
     }
 
-    public boolean close() throws IOException {
-        GitRepoController controller = new GitRepoController();
+    // Loads the caches of a previous run from `folder`; they are saved back when the repository is closed
+    public void useCache(Path folder) throws GitFileException {
+        try {
+            lineCache.load(folder.resolve(LINE_CACHE));
+            diffCache.open(folder.resolve(DIFF_CACHE));
+            this.cacheFolder = folder;
+        } catch (IOException e) {
+            throw new GitFileException("Could not load cache", e);
+        }
+    }
 
+    public void close() throws IOException {
+        if (cacheFolder != null)
+            lineCache.save(cacheFolder.resolve(LINE_CACHE));
+        diffCache.close();
+        pool.shutdown();
+        if (logger.isLoggable(Level.INFO))
+            logger.info("Diff cache: %d hits, %d disk hits, %d misses".formatted(diffCache.hits(), diffCache.diskHits(), diffCache.misses()));
         repository.close();
-        return controller.recurseClean(folder);
+    }
+
+    private static GitHistoryBackend createBackend(Repository repository) throws GitRepoException {
+        String name = Config.gitBackend();
+        return switch (name) {
+            case "jgit" -> new GitJGitBackend(repository);
+            case "cli" -> new GitCliBackend(repository, Config.gitBinary());
+            default -> throw new GitRepoException("Unknown history backend: %s".formatted(name));
+        };
     }
 
     public GitCommitEntry getFirstCommit() throws GitLogException {
-        GitCommitController controller = new GitCommitController();
-        return controller.getFirstCommit(repository);
+        return getCommit(backend.getFirstCommit());
     }
 
     public List<GitCommitEntry> getAllCommitsOfClass(GitCommitEntry first, GitCommitEntry second, String aClass) throws GitLogException {
-        GitCommitController controller = new GitCommitController();
-        return controller.getAllCommitsOfClass(repository, first, second, aClass);
+        int[] ordinals = getOrdinalsOfClass(first, second, aClass);
+        // Most recent commit first (same order as `git log`)
+        List<GitCommitEntry> entries = new ArrayList<>(ordinals.length);
+        for (int i = ordinals.length - 1; i >= 0; i--)
+            entries.add(commits.get(ordinals[i]));
+        return entries;
+    }
+
+    // Ordinals (ascending) of the commits touching `aClass` in the range first..second (reachable from `second` but not from `first`)
+    public int[] getOrdinalsOfClass(GitCommitEntry first, GitCommitEntry second, String aClass) throws GitLogException {
+        return getPathIndex().commitsBetween(aClass, getReachable(first), getReachable(second));
+    }
+
+    // Releases are few: the reachable commits of each revision are computed only once
+    private BitSet getReachable(GitCommitEntry commit) {
+        return reachable.computeIfAbsent(commit.ordinal(), store::reachableFrom);
     }
 
     public Map<String, GitDiffEntry> getDifferences(GitCommitEntry first, GitCommitEntry second) throws GitDiffException {
-        GitDiffController controller = new GitDiffController();
-        return controller.getDifferences(repository, first, second);
+        return backend.getDifferences(first, second, diffCache);
+    }
+
+    // Differences of every pair of commits, computed in parallel (the i-th map is the result of the i-th pair)
+    public List<Map<String, GitDiffEntry>> getDifferences(List<Pair<GitCommitEntry, GitCommitEntry>> pairs) throws GitDiffException {
+        return backend.getDifferences(pairs, diffCache, pool);
     }
 
     public List<GitDiffEntry> getAllDifferencesOfClass(GitCommitEntry first, GitCommitEntry second, String aClass) throws GitDiffException, GitLogException {
-        GitCommitController commitController = new GitCommitController();
-        GitDiffController diffController = new GitDiffController();
-        List<GitCommitEntry> commitsInBetween = commitController.getAllCommitsOfClass(repository, first, second, aClass);
-        return diffController.getAllDifferencesOfClass(repository, commitsInBetween, aClass);
+        List<GitCommitEntry> commitsInBetween = getAllCommitsOfClass(first, second, aClass);
+        return backend.getAllDifferencesOfClass(commitsInBetween, aClass, diffCache);
+    }
+
+    // Same as `getAllDifferencesOfClass` for every class in `classes`, computed in parallel
+    public Map<String, List<GitDiffEntry>> getAllDifferencesOfClasses(GitCommitEntry first, GitCommitEntry second, List<String> classes) throws GitDiffException, GitLogException {
+        Map<String, List<GitCommitEntry>> commitsOfClasses = new HashMap<>();
+        for (String aClass : classes)
+            commitsOfClasses.put(aClass, getAllCommitsOfClass(first, second, aClass));
+        return backend.getAllDifferencesOfClasses(commitsOfClasses, diffCache, pool);
     }
 
     public String getContentsOfClass(GitCommitEntry commit, String filePath) throws GitFileException {
-        GitCommitController controller = new GitCommitController();
-        return controller.getContentsOfFile(repository, commit, filePath);
+        return backend.getContentsOfFile(commit, filePath);
+    }
+
+    public int getLinesOfClass(GitCommitEntry commit, String filePath) throws GitFileException {
+        return backend.getLinesOfFile(commit, filePath, lineCache);
+    }
+
+    // Loads the class list of every revision: only the first one is fully explored, the others are derived from the previous revision
+    public void loadClassesOfRevisions(List<GitCommitEntry> revisions) throws GitLogException {
+        GitCommitEntry previous = null;
+        for (GitCommitEntry revision : revisions) {
+            if (previous == null)
+                revision.setClassList(backend.getClassList(revision.tree(), paths));
+            else
+                revision.setClassList(backend.getClassList(previous.classList(), previous.tree(), revision.tree(), paths));
+            previous = revision;
+        }
     }
 
-    public void loadClassesOfRevision(GitCommitEntry version) throws GitLogException {
-        GitCommitController controller = new GitCommitController();
-        version.setClassList(controller.getClassList(repository, version.tree()));
+    // Computes (in parallel) the modified classes of every commit not already loaded
+    public void loadModifiedClassesOfCommits(Collection<GitCommitEntry> commits) throws GitDiffException {
+        List<GitCommitEntry> missing = commits.stream()
+                .filter(commit -> !modifiedClasses.containsKey(commit.ordinal()))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty())
+            modifiedClasses.putAll(backend.getModifiedClassesOfCommits(missing, pool));
     }
 
     public List<String> getModifiedClassesOfCommit(GitCommitEntry commit) throws GitDiffException {
-        GitDiffController controller = new GitDiffController();
-        return controller.getModifiedClassesOfCommit(repository, commit);
+        List<String> modified = modifiedClasses.get(commit.ordinal());
+        if (modified == null) {
+            modified = backend.getModifiedClassesOfCommit(commit);
+            modifiedClasses.put(commit.ordinal(), modified);
+        }
+        return modified;
+    }
+
+    private synchronized GitPathIndex getPathIndex() throws GitLogException {
+        if (pathIndex == null) {
+            pathIndex = backend.getPathIndex(store);
+        }
+        return pathIndex;
+    }
+
+    public GitDiffCache getDiffCache() {
+        return diffCache;
     }
 
     public List<GitCommitEntry> getCommits() {
         return commits;
     }
+
+    public GitCommitStore getCommitStore() {
+        return store;
+    }
+
+    public GitPathDictionary getPathDictionary() {
+        return paths;
+    }
+
+    public GitCommitTimeline getTimeline() {
+        return timeline;
+    }
+
+    // Returns the commit with the given id, or null if it does not exist
+    private GitCommitEntry getCommit(ObjectId id) {
+        int ordinal = store.ordinalOf(id);
+        return ordinal != -1 ? commits.get(ordinal) : null;
+    }
+
+    // Entries are created on request, so that only the store is kept in memory
+    private static final class CommitList extends AbstractList<GitCommitEntry> implements RandomAccess {
+        private final GitCommitStore store;
+
+        private CommitList(GitCommitStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public GitCommitEntry get(int ordinal) {
+            Objects.checkIndex(ordinal, store.size());
+            return new GitCommitEntry(store, ordinal);
+        }
+
+        @Override
+        public int size() {
+            return store.size();
+        }
+    }
 }
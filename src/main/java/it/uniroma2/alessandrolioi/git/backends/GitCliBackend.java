@@ -0,0 +1,41 @@
+package it.uniroma2.alessandrolioi.git.backends;
+
+import it.uniroma2.alessandrolioi.git.controllers.GitCliController;
+import it.uniroma2.alessandrolioi.git.exceptions.GitDiffException;
+import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
+import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitCommitStore;
+import it.uniroma2.alessandrolioi.git.models.GitPathIndex;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Bulk history mining (per-path history and modified classes) is read from a single streamed `git log`;
+// the other requests are served by JGit, since the metrics count the changed lines with the rules of GitLineDiffController
+public class GitCliBackend extends GitJGitBackend {
+    private final String binary;
+
+    public GitCliBackend(Repository repository, String binary) {
+        super(repository);
+        this.binary = binary;
+    }
+
+    @Override
+    public GitPathIndex getPathIndex(GitCommitStore store) throws GitLogException {
+        GitCliController controller = new GitCliController(binary);
+        return controller.getPathIndex(repository, store);
+    }
+
+    @Override
+    public Map<Integer, List<String>> getModifiedClassesOfCommits(List<GitCommitEntry> commits, ForkJoinPool pool) throws GitDiffException {
+        GitCliController controller = new GitCliController(binary);
+        return controller.getModifiedClassesOfCommits(repository, commits);
+    }
+
+    @Override
+    public List<String> getModifiedClassesOfCommit(GitCommitEntry commit) throws GitDiffException {
+        return getModifiedClassesOfCommits(List.of(commit), null).get(commit.ordinal());
+    }
+}
@@ -0,0 +1,52 @@
+package it.uniroma2.alessandrolioi.git.backends;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.git.exceptions.GitDiffException;
+import it.uniroma2.alessandrolioi.git.exceptions.GitFileException;
+import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
+import it.uniroma2.alessandrolioi.git.models.*;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Source of the history of a repository used by the Git facade
+public interface GitHistoryBackend {
+    // Commits
+
+    ObjectId getFirstCommit() throws GitLogException;
+
+    GitCommitStore getCommits() throws GitLogException;
+
+    // Per-path history
+
+    GitPathIndex getPathIndex(GitCommitStore store) throws GitLogException;
+
+    // Maps the ordinal of every commit to the paths it modified (with respect to each of its parents)
+    Map<Integer, List<String>> getModifiedClassesOfCommits(List<GitCommitEntry> commits, ForkJoinPool pool) throws GitDiffException;
+
+    List<String> getModifiedClassesOfCommit(GitCommitEntry commit) throws GitDiffException;
+
+    // Diffs
+
+    Map<String, GitDiffEntry> getDifferences(GitCommitEntry first, GitCommitEntry second, GitDiffCache cache) throws GitDiffException;
+
+    List<Map<String, GitDiffEntry>> getDifferences(List<Pair<GitCommitEntry, GitCommitEntry>> pairs, GitDiffCache cache, ForkJoinPool pool) throws GitDiffException;
+
+    List<GitDiffEntry> getAllDifferencesOfClass(List<GitCommitEntry> commitsInBetween, String path, GitDiffCache cache) throws GitDiffException;
+
+    Map<String, List<GitDiffEntry>> getAllDifferencesOfClasses(Map<String, List<GitCommitEntry>> commitsOfClasses, GitDiffCache cache, ForkJoinPool pool) throws GitDiffException;
+
+    // Blob contents
+
+    String getContentsOfFile(GitCommitEntry commit, String path) throws GitFileException;
+
+    int getLinesOfFile(GitCommitEntry commit, String path, GitLineCache cache) throws GitFileException;
+
+    // Class lists
+
+    GitClassList getClassList(ObjectId tree, GitPathDictionary dictionary) throws GitLogException;
+
+    GitClassList getClassList(GitClassList previous, ObjectId previousTree, ObjectId tree, GitPathDictionary dictionary) throws GitLogException;
+}
@@ -0,0 +1,102 @@
+package it.uniroma2.alessandrolioi.git.backends;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.git.controllers.GitCommitController;
+import it.uniroma2.alessandrolioi.git.controllers.GitDiffController;
+import it.uniroma2.alessandrolioi.git.exceptions.GitDiffException;
+import it.uniroma2.alessandrolioi.git.exceptions.GitFileException;
+import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
+import it.uniroma2.alessandrolioi.git.models.*;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Reads the whole history in-process through the JGit controllers
+public class GitJGitBackend implements GitHistoryBackend {
+    protected final Repository repository;
+
+    public GitJGitBackend(Repository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public ObjectId getFirstCommit() throws GitLogException {
+        GitCommitController controller = new GitCommitController();
+        return controller.getFirstCommit(repository);
+    }
+
+    @Override
+    public GitCommitStore getCommits() throws GitLogException {
+        GitCommitController controller = new GitCommitController();
+        return controller.getCommits(repository);
+    }
+
+    @Override
+    public GitPathIndex getPathIndex(GitCommitStore store) throws GitLogException {
+        GitCommitController controller = new GitCommitController();
+        return controller.getPathIndex(repository, store);
+    }
+
+    @Override
+    public Map<Integer, List<String>> getModifiedClassesOfCommits(List<GitCommitEntry> commits, ForkJoinPool pool) throws GitDiffException {
+        GitDiffController controller = new GitDiffController();
+        return controller.getModifiedClassesOfCommits(repository, commits, pool);
+    }
+
+    @Override
+    public List<String> getModifiedClassesOfCommit(GitCommitEntry commit) throws GitDiffException {
+        GitDiffController controller = new GitDiffController();
+        return controller.getModifiedClassesOfCommit(repository, commit);
+    }
+
+    @Override
+    public Map<String, GitDiffEntry> getDifferences(GitCommitEntry first, GitCommitEntry second, GitDiffCache cache) throws GitDiffException {
+        GitDiffController controller = new GitDiffController();
+        return controller.getDifferences(repository, first, second, cache);
+    }
+
+    @Override
+    public List<Map<String, GitDiffEntry>> getDifferences(List<Pair<GitCommitEntry, GitCommitEntry>> pairs, GitDiffCache cache, ForkJoinPool pool) throws GitDiffException {
+        GitDiffController controller = new GitDiffController();
+        return controller.getDifferences(repository, pairs, cache, pool);
+    }
+
+    @Override
+    public List<GitDiffEntry> getAllDifferencesOfClass(List<GitCommitEntry> commitsInBetween, String path, GitDiffCache cache) throws GitDiffException {
+        GitDiffController controller = new GitDiffController();
+        return controller.getAllDifferencesOfClass(repository, commitsInBetween, path, cache);
+    }
+
+    @Override
+    public Map<String, List<GitDiffEntry>> getAllDifferencesOfClasses(Map<String, List<GitCommitEntry>> commitsOfClasses, GitDiffCache cache, ForkJoinPool pool) throws GitDiffException {
+        GitDiffController controller = new GitDiffController();
+        return controller.getAllDifferencesOfClasses(repository, commitsOfClasses, cache, pool);
+    }
+
+    @Override
+    public String getContentsOfFile(GitCommitEntry commit, String path) throws GitFileException {
+        GitCommitController controller = new GitCommitController();
+        return controller.getContentsOfFile(repository, commit, path);
+    }
+
+    @Override
+    public int getLinesOfFile(GitCommitEntry commit, String path, GitLineCache cache) throws GitFileException {
+        GitCommitController controller = new GitCommitController();
+        return controller.getLinesOfFile(repository, commit, path, cache);
+    }
+
+    @Override
+    public GitClassList getClassList(ObjectId tree, GitPathDictionary dictionary) throws GitLogException {
+        GitCommitController controller = new GitCommitController();
+        return controller.getClassList(repository, tree, dictionary);
+    }
+
+    @Override
+    public GitClassList getClassList(GitClassList previous, ObjectId previousTree, ObjectId tree, GitPathDictionary dictionary) throws GitLogException {
+        GitCommitController controller = new GitCommitController();
+        return controller.getClassList(repository, previous, previousTree, tree, dictionary);
+    }
+}
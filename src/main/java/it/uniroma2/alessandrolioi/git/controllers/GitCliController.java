@@ -0,0 +1,134 @@
+package it.uniroma2.alessandrolioi.git.controllers;
+
+import it.uniroma2.alessandrolioi.git.exceptions.GitDiffException;
+import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
+import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitCommitStore;
+import it.uniroma2.alessandrolioi.git.models.GitPathIndex;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Reads the history streaming the output of a local git binary (a single process for the whole request)
+public class GitCliController {
+    // Prefix of the lines with the hash of a commit (a path cannot start with it)
+    private static final char HEADER = '\u0001';
+    private static final String FORMAT = "--format=%x01%H";
+
+    private final String binary;
+
+    public GitCliController(String binary) {
+        this.binary = binary;
+    }
+
+    // Same index of `GitCommitController.getPathIndex`, read from `git log --name-only` (merges use the combined diff:
+    // only the paths that differ from every parent are listed)
+    public GitPathIndex getPathIndex(Repository repository, GitCommitStore store) throws GitLogException {
+        List<List<String>> touched = new ArrayList<>(Collections.nCopies(store.size(), null));
+        try {
+            Process process = start(repository, "log", "--all", "-c", "--root", "--no-renames", "--name-only", FORMAT);
+            process.getOutputStream().close();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                List<String> paths = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty() && line.charAt(0) == HEADER) {
+                        int ordinal = store.ordinalOf(ObjectId.fromString(line.substring(1)));
+                        // Commits not reachable by the store are skipped
+                        paths = ordinal != -1 ? new ArrayList<>() : null;
+                        if (ordinal != -1) touched.set(ordinal, paths);
+                    } else if (paths != null && line.endsWith(".java")) {
+                        paths.add(line);
+                    }
+                }
+            }
+            waitFor(process);
+        } catch (IOException e) {
+            throw new GitLogException(GitLogException.IO, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitLogException("Interrupted while reading the history", e);
+        }
+        // Postings have to be added in ascending order of ordinal
+        GitPathIndex pathIndex = new GitPathIndex();
+        for (int i = 0; i < touched.size(); i++) {
+            if (touched.get(i) == null) continue;
+            for (String path : touched.get(i)) pathIndex.add(path, i);
+        }
+        return pathIndex;
+    }
+
+    // Same result of `GitDiffController.getModifiedClassesOfCommits`, read from `git log -m --name-status`
+    // (a separate diff for every parent, in the order of the parents)
+    public Map<Integer, List<String>> getModifiedClassesOfCommits(Repository repository, List<GitCommitEntry> commits) throws GitDiffException {
+        Map<String, List<String>> modifiedOfHash = new HashMap<>();
+        Map<Integer, List<String>> modified = new HashMap<>();
+        for (GitCommitEntry commit : commits) {
+            List<String> classes = new ArrayList<>();
+            modified.put(commit.ordinal(), classes);
+            // Root commits have no parent to compare with
+            if (!commit.parents().isEmpty()) modifiedOfHash.put(commit.hash(), classes);
+        }
+        if (modifiedOfHash.isEmpty()) return modified;
+        try {
+            Process process = start(repository, "log", "--stdin", "--no-walk=unsorted", "-m", "--no-renames", "--name-status", FORMAT);
+            // git reads every revision before writing any output
+            try (Writer writer = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+                for (String hash : modifiedOfHash.keySet()) writer.write(hash + "\n");
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                List<String> classes = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    if (line.charAt(0) == HEADER) classes = modifiedOfHash.get(line.substring(1));
+                    else if (classes != null) addModified(classes, line);
+                }
+            }
+            waitFor(process);
+        } catch (IOException | GitLogException e) {
+            throw new GitDiffException("Could not read the modified classes", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitDiffException("Interrupted while reading the modified classes", e);
+        }
+        return modified;
+    }
+
+    // Line in the form `<status>\t<path>`: deleted paths are reported as /dev/null (like DiffEntry.getNewPath)
+    private void addModified(List<String> classes, String line) {
+        int tab = line.indexOf('\t');
+        String path = line.substring(tab + 1);
+        switch (line.charAt(0)) {
+            case 'D' -> classes.add(DiffEntry.DEV_NULL);
+            // A change of type (i.e. file to symlink) is a deletion followed by an addition in JGit
+            case 'T' -> {
+                classes.add(DiffEntry.DEV_NULL);
+                classes.add(path);
+            }
+            default -> classes.add(path);
+        }
+    }
+
+    private Process start(Repository repository, String... arguments) throws IOException {
+        List<String> command = new ArrayList<>(List.of(binary, "--git-dir", repository.getDirectory().getAbsolutePath(),
+                "-c", "core.quotePath=false"));
+        command.addAll(List.of(arguments));
+        return new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private void waitFor(Process process) throws InterruptedException, GitLogException {
+        int code = process.waitFor();
+        if (code != 0) throw new GitLogException("git exited with code %d".formatted(code), null);
+    }
+}
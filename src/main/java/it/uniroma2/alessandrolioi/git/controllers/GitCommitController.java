@@ -2,10 +2,12 @@ package it.uniroma2.alessandrolioi.git.controllers;
 
 import it.uniroma2.alessandrolioi.git.exceptions.GitFileException;
 import it.uniroma2.alessandrolioi.git.exceptions.GitLogException;
+import it.uniroma2.alessandrolioi.git.models.GitClassList;
 import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.api.errors.NoHeadException;
+import it.uniroma2.alessandrolioi.git.models.GitCommitStore;
+import it.uniroma2.alessandrolioi.git.models.GitLineCache;
+import it.uniroma2.alessandrolioi.git.models.GitPathDictionary;
+import it.uniroma2.alessandrolioi.git.models.GitPathIndex;
 import org.eclipse.jgit.errors.AmbiguousObjectException;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
@@ -13,25 +15,27 @@ import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevSort;
-import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
 
 public class GitCommitController {
-    public GitCommitEntry getFirstCommit(Repository repository) throws GitLogException {
-        try {
-            RevWalk walk = new RevWalk(repository);
+    public ObjectId getFirstCommit(Repository repository) throws GitLogException {
+        try (RevWalk walk = new RevWalk(repository)) {
             ObjectId head = repository.resolve(Constants.HEAD);
             RevCommit root = walk.parseCommit(head);
             walk.sort(RevSort.REVERSE);
             walk.markStart(root);
-            return commitFromRevCommit(walk.next());
+            return walk.next().copy();
         } catch (AmbiguousObjectException | IncorrectObjectTypeException e) {
             throw new GitLogException("Not a commit", e);
         } catch (IOException e) {
@@ -39,28 +43,36 @@ public class GitCommitController {
         }
     }
 
-    public List<GitCommitEntry> getCommits(Repository repository) throws GitLogException {
-        List<GitCommitEntry> entries = new ArrayList<>();
-        try (Git git = new Git(repository)) {
-            for (Ref branch : git.branchList().call()) {
-                // all: used to get the commits from all branches (even the branches not synced with GitHub, but only in SVN ~ pre-2017)
-                for (RevCommit commit : git.log().all().add(repository.resolve(branch.getName())).call())
-                    entries.add(commitFromRevCommit(commit));
+    public GitCommitStore getCommits(Repository repository) throws GitLogException {
+        List<RevCommit> commits = new ArrayList<>();
+        // A single walk over every ref: each commit is visited (and parsed) only once
+        try (RevWalk walk = new RevWalk(repository)) {
+            // all refs: used to get the commits from all branches (even the branches not synced with GitHub, but only in SVN ~ pre-2017)
+            for (Ref ref : repository.getRefDatabase().getRefs()) {
+                ObjectId id = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+                if (id == null) continue;
+                // Skipping refs not pointing to a commit (i.e. tags of trees or blobs)
+                if (walk.peel(walk.parseAny(id)) instanceof RevCommit commit)
+                    walk.markStart(commit);
             }
-        } catch (GitAPIException e) {
-            throw new GitLogException("Unable to get the log", e);
-        } catch (AmbiguousObjectException | IncorrectObjectTypeException e) {
+            walk.sort(RevSort.COMMIT_TIME_DESC);
+            for (RevCommit commit : walk)
+                commits.add(commit);
+        } catch (MissingObjectException e) {
+            throw new GitLogException("Missing entry", e);
+        } catch (IncorrectObjectTypeException e) {
             throw new GitLogException("Not a commit", e);
         } catch (IOException e) {
             throw new GitLogException(GitLogException.IO, e);
         }
 
-        // Ascending order of commit date
-        Collections.reverse(entries);
-        return entries;
+        // Ascending order of commit date (the parsed commits are released once the store is built)
+        Collections.reverse(commits);
+        // Messages are loaded by the store only when requested
+        return new GitCommitStore(commits, (count, ids, action) -> loadMessages(repository, count, ids, action));
     }
 
-    public List<String> getClassList(Repository repository, RevTree tree) throws GitLogException {
+    public GitClassList getClassList(Repository repository, ObjectId tree, GitPathDictionary dictionary) throws GitLogException {
         try (TreeWalk walk = new TreeWalk(repository)) {
             List<String> classes = new ArrayList<>();
             // Set base commit
@@ -73,7 +85,43 @@ public class GitCommitController {
             // Iterate until there are files
             while (walk.next()) classes.add(walk.getPathString());
 
-            return classes;
+            return new GitClassList(classes.stream().mapToInt(dictionary::idOf).toArray(), dictionary);
+        } catch (IOException e) {
+            throw new GitLogException(GitLogException.IO, e);
+        }
+    }
+
+    // Class list of `tree` derived from the class list of `previousTree`, walking only the files that differ between them
+    public GitClassList getClassList(Repository repository, GitClassList previous, ObjectId previousTree, ObjectId tree, GitPathDictionary dictionary) throws GitLogException {
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            Set<Integer> deleted = new HashSet<>();
+            List<String> added = new ArrayList<>();
+            walk.addTree(previousTree);
+            walk.addTree(tree);
+            walk.setRecursive(true);
+            // Exclude non-java files and the files present in both trees with the same contents
+            walk.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".java"), TreeFilter.ANY_DIFF));
+            while (walk.next()) {
+                boolean inPrevious = walk.getRawMode(0) != 0;
+                boolean inCurrent = walk.getRawMode(1) != 0;
+                if (inPrevious && !inCurrent) deleted.add(dictionary.idOf(walk.getPathString()));
+                else if (!inPrevious && inCurrent) added.add(walk.getPathString());
+            }
+
+            // Both lists are in tree order (the same as the order of the path strings): merge them keeping the order
+            int[] ids = new int[previous.size() - deleted.size() + added.size()];
+            int size = 0;
+            int next = 0;
+            for (int i = 0; i < previous.size(); i++) {
+                if (deleted.contains(previous.idAt(i))) continue;
+                String path = previous.get(i);
+                while (next < added.size() && added.get(next).compareTo(path) < 0)
+                    ids[size++] = dictionary.idOf(added.get(next++));
+                ids[size++] = previous.idAt(i);
+            }
+            while (next < added.size())
+                ids[size++] = dictionary.idOf(added.get(next++));
+            return new GitClassList(ids, dictionary);
         } catch (IOException e) {
             throw new GitLogException(GitLogException.IO, e);
         }
@@ -95,31 +143,89 @@ public class GitCommitController {
         }
     }
 
-    public List<GitCommitEntry> getAllCommitsOfClass(Repository repository, GitCommitEntry first, GitCommitEntry second, String path) throws GitLogException {
-        try (Git git = new Git(repository)) {
-            ObjectId firstId = ObjectId.fromString(first.hash());
-            ObjectId secondId = ObjectId.fromString(second.hash());
-            List<GitCommitEntry> entries = new ArrayList<>();
-            git.log().addRange(firstId, secondId).addPath(path).call().iterator().forEachRemaining(c -> entries.add(commitFromRevCommit(c)));
-            return entries;
+    public int getLinesOfFile(Repository repository, GitCommitEntry commit, String fileName, GitLineCache cache) throws GitFileException {
+        try (TreeWalk walk = TreeWalk.forPath(repository, fileName, commit.tree())) {
+            ObjectId blobId = walk.getObjectId(0);
+            // The same blob is usually shared by many releases: it is counted only once
+            int lines = cache.get(blobId);
+            if (lines == -1) {
+                try (ObjectReader reader = repository.newObjectReader(); InputStream stream = reader.open(blobId).openStream()) {
+                    lines = countLines(stream);
+                }
+                cache.put(blobId, lines);
+            }
+            return lines;
+        } catch (CorruptObjectException e) {
+            throw new GitFileException("Corrupt git object", e);
+        } catch (IncorrectObjectTypeException e) {
+            throw new GitFileException("Unexpected git object type", e);
+        } catch (MissingObjectException e) {
+            throw new GitFileException("Git object not found", e);
+        } catch (IOException e) {
+            throw new GitFileException("Reading failed", e);
+        }
+    }
+
+    // Streamed equivalent of `contents.split("\n").length` (trailing empty lines are not counted)
+    private int countLines(InputStream stream) throws IOException {
+        byte[] buffer = new byte[8192];
+        boolean empty = true;
+        int newLines = 0;
+        int lines = 0;
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') newLines++;
+                else lines = newLines + 1;
+            }
+            if (read > 0) empty = false;
+        }
+        // An empty file still counts as a single (empty) line
+        return empty ? 1 : lines;
+    }
+
+    public GitPathIndex getPathIndex(Repository repository, GitCommitStore store) throws GitLogException {
+        GitPathIndex pathIndex = new GitPathIndex();
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            // Explore sub-folders
+            walk.setRecursive(true);
+            // Single walk over the whole history, in ascending order of ordinal
+            for (int i = 0; i < store.size(); i++) {
+                int parents = store.parentCount(i);
+                walk.reset();
+                walk.addTree(store.tree(i));
+                for (int j = 0; j < parents; j++) walk.addTree(store.tree(store.parent(i, j)));
+                // Exclude non-java files (and, if there is a parent, the unchanged ones)
+                TreeFilter java = PathSuffixFilter.create(".java");
+                walk.setFilter(parents == 0 ? java : AndTreeFilter.create(java, TreeFilter.ANY_DIFF));
+                while (walk.next()) {
+                    if (isTouched(walk, parents))
+                        pathIndex.add(walk.getPathString(), i);
+                }
+            }
+            return pathIndex;
         } catch (MissingObjectException e) {
             throw new GitLogException("Missing entry", e);
         } catch (IOException e) {
             throw new GitLogException(GitLogException.IO, e);
-        } catch (NoHeadException e) {
-            throw new GitLogException("Could not find HEAD", e);
-        } catch (GitAPIException e) {
-            throw new GitLogException("Could not call git API", e);
         }
     }
 
-    private GitCommitEntry commitFromRevCommit(RevCommit commit) {
-        String hash = commit.getName();
-        String message = commit.getShortMessage();
-        LocalDateTime date = LocalDateTime.ofInstant(commit.getCommitterIdent().getWhenAsInstant(), commit.getCommitterIdent().getZoneId());
-        String author = commit.getAuthorIdent().getName();
-        List<RevTree> parents = Arrays.stream(commit.getParents()).map(RevCommit::getTree).toList();
-        RevTree tree = commit.getTree();
-        return new GitCommitEntry(hash, message, date, author, tree, parents);
+    // A path is touched by a commit if it differs from every parent (same as `git log -- path` on merges)
+    private boolean isTouched(TreeWalk walk, int parents) {
+        for (int i = 1; i <= parents; i++) {
+            if (walk.idEqual(0, i) && walk.getRawMode(0) == walk.getRawMode(i)) return false;
+        }
+        return true;
+    }
+
+    // A single reader for every message: each commit is parsed on its own, so no commit is retained
+    private void loadMessages(Repository repository, int count, IntFunction<ObjectId> ids, ObjIntConsumer<String> action) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            for (int i = 0; i < count; i++) {
+                byte[] raw = reader.open(ids.apply(i), Constants.OBJ_COMMIT).getCachedBytes();
+                action.accept(RevCommit.parse(raw).getShortMessage(), i);
+            }
+        }
     }
 }
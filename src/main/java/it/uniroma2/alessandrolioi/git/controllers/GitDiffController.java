@@ -3,23 +3,18 @@ package it.uniroma2.alessandrolioi.git.controllers;
 import it.uniroma2.alessandrolioi.common.Pair;
 import it.uniroma2.alessandrolioi.git.exceptions.GitDiffException;
 import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitDiffCache;
 import it.uniroma2.alessandrolioi.git.models.GitDiffEntry;
-import org.eclipse.jgit.api.DiffCommand;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.diff.Edit;
-import org.eclipse.jgit.diff.EditList;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.patch.FileHeader;
-import org.eclipse.jgit.revwalk.RevTree;
-import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 import java.io.IOException;
@@ -27,26 +22,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GitDiffController {
-    public List<GitDiffEntry> getAllDifferencesOfClass(Repository repository, List<GitCommitEntry> commitsInBetween, String path) throws GitDiffException {
-        try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-            diffFormatter.setRepository(repository);
-            diffFormatter.setPathFilter(PathFilter.create(path));
-            List<GitDiffEntry> diffEntries = new ArrayList<>();
-            if (commitsInBetween.isEmpty()) return diffEntries;
-            GitCommitEntry previous = commitsInBetween.get(0);
-            for (int i = 1; i < commitsInBetween.size(); i++) {
-                GitCommitEntry current = commitsInBetween.get(i);
-                List<DiffEntry> diffs = diffFormatter.scan(previous.tree(), current.tree());
-                for (DiffEntry diff : diffs) {
-                    FileHeader header = diffFormatter.toFileHeader(diff);
-                    Pair<Integer, Integer> addedAndDeleted = calculateAddedAndDeleted(header.toEditList());
-                    GitDiffEntry entry = new GitDiffEntry(diff, addedAndDeleted.first(), addedAndDeleted.second());
-                    diffEntries.add(entry);
-                }
-            }
-            return diffEntries;
+    public List<GitDiffEntry> getAllDifferencesOfClass(Repository repository, List<GitCommitEntry> commitsInBetween, String path, GitDiffCache cache) throws GitDiffException {
+        try (ObjectReader reader = repository.newObjectReader();
+             DiffFormatter diffFormatter = newFormatter(repository, reader)) {
+            return differencesOfClass(diffFormatter, reader, commitsInBetween, path, cache);
         } catch (CorruptObjectException e) {
             throw new GitDiffException("Corrupt entry", e);
         } catch (MissingObjectException e) {
@@ -56,25 +41,23 @@ public class GitDiffController {
         }
     }
 
-    public Map<String, GitDiffEntry> getDifferences(Repository repository, GitCommitEntry first, GitCommitEntry second) throws GitDiffException {
-        // Create a formatter disabling output
-        try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-            // Set current repository
-            diffFormatter.setRepository(repository);
-            // Exclude non-java files
-            diffFormatter.setPathFilter(PathSuffixFilter.create(".java"));
-            // Get diffs between `first` and `second` commits
-            List<DiffEntry> diffs = diffFormatter.scan(first.tree(), second.tree());
-            // List of computed differences
-            Map<String, GitDiffEntry> differences = new HashMap<>();
-            for (DiffEntry diff : diffs) {
-                FileHeader header = diffFormatter.toFileHeader(diff);
-                Pair<Integer, Integer> addedAndDeleted = calculateAddedAndDeleted(header.toEditList());
-                String path = diff.getNewPath();
-                GitDiffEntry entry = new GitDiffEntry(diff, addedAndDeleted.first(), addedAndDeleted.second());
-                differences.put(path, entry);
-            }
-            return differences;
+    // Parallel version of `getAllDifferencesOfClass`: every class is a separate job
+    public Map<String, List<GitDiffEntry>> getAllDifferencesOfClasses(Repository repository, Map<String, List<GitCommitEntry>> commitsOfClasses,
+                                                                      GitDiffCache cache, ForkJoinPool pool) throws GitDiffException {
+        List<Map.Entry<String, List<GitCommitEntry>>> jobs = new ArrayList<>(commitsOfClasses.entrySet());
+        List<List<GitDiffEntry>> results = runInParallel(repository, jobs, pool,
+                (diffFormatter, reader, job) -> differencesOfClass(diffFormatter, reader, job.getValue(), job.getKey(), cache));
+        Map<String, List<GitDiffEntry>> differences = new HashMap<>();
+        for (int i = 0; i < jobs.size(); i++)
+            differences.put(jobs.get(i).getKey(), results.get(i));
+        return differences;
+    }
+
+    public Map<String, GitDiffEntry> getDifferences(Repository repository, GitCommitEntry first, GitCommitEntry second, GitDiffCache cache) throws GitDiffException {
+        // Create a formatter disabling output (on the current repository)
+        try (ObjectReader reader = repository.newObjectReader();
+             DiffFormatter diffFormatter = newFormatter(repository, reader)) {
+            return differences(diffFormatter, reader, first, second, cache);
         } catch (CorruptObjectException e) {
             throw new GitDiffException("Corrupt entry", e);
         } catch (MissingObjectException e) {
@@ -84,43 +67,125 @@ public class GitDiffController {
         }
     }
 
+    // Parallel version of `getDifferences`: every pair of commits is a separate job (results are in the same order of `pairs`)
+    public List<Map<String, GitDiffEntry>> getDifferences(Repository repository, List<Pair<GitCommitEntry, GitCommitEntry>> pairs,
+                                                          GitDiffCache cache, ForkJoinPool pool) throws GitDiffException {
+        return runInParallel(repository, pairs, pool,
+                (diffFormatter, reader, pair) -> differences(diffFormatter, reader, pair.first(), pair.second(), cache));
+    }
+
+    private List<GitDiffEntry> differencesOfClass(DiffFormatter diffFormatter, ObjectReader reader, List<GitCommitEntry> commitsInBetween, String path, GitDiffCache cache) throws IOException {
+        diffFormatter.setPathFilter(PathFilter.create(path));
+        List<GitDiffEntry> diffEntries = new ArrayList<>();
+        if (commitsInBetween.isEmpty()) return diffEntries;
+        GitCommitEntry previous = commitsInBetween.get(0);
+        for (int i = 1; i < commitsInBetween.size(); i++) {
+            GitCommitEntry current = commitsInBetween.get(i);
+            List<DiffEntry> diffs = diffFormatter.scan(previous.tree(), current.tree());
+            for (DiffEntry diff : diffs)
+                diffEntries.add(toDiffEntry(reader, diff, cache));
+        }
+        return diffEntries;
+    }
+
+    private Map<String, GitDiffEntry> differences(DiffFormatter diffFormatter, ObjectReader reader, GitCommitEntry first, GitCommitEntry second, GitDiffCache cache) throws IOException {
+        // Exclude non-java files
+        diffFormatter.setPathFilter(PathSuffixFilter.create(".java"));
+        // Get diffs between `first` and `second` commits
+        List<DiffEntry> diffs = diffFormatter.scan(first.tree(), second.tree());
+        // List of computed differences
+        Map<String, GitDiffEntry> differences = new HashMap<>();
+        for (DiffEntry diff : diffs)
+            differences.put(diff.getNewPath(), toDiffEntry(reader, diff, cache));
+        return differences;
+    }
+
+    // Runs the jobs on the pool: every worker has its own reader and formatter, and takes the next job until there are none left
+    private <T, R> List<R> runInParallel(Repository repository, List<T> jobs, ForkJoinPool pool, DiffJob<T, R> diffJob) throws GitDiffException {
+        Object[] results = new Object[jobs.size()];
+        AtomicInteger next = new AtomicInteger();
+        List<ForkJoinTask<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(pool.getParallelism(), jobs.size()); i++) {
+            workers.add(pool.submit(() -> {
+                try (ObjectReader reader = repository.newObjectReader();
+                     DiffFormatter diffFormatter = newFormatter(repository, reader)) {
+                    for (int job = next.getAndIncrement(); job < jobs.size(); job = next.getAndIncrement())
+                        results[job] = diffJob.apply(diffFormatter, reader, jobs.get(job));
+                }
+                return null;
+            }));
+        }
+        try {
+            for (ForkJoinTask<Void> worker : workers) worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitDiffException("Interrupted while computing differences", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CorruptObjectException cause) throw new GitDiffException("Corrupt entry", cause);
+            if (e.getCause() instanceof MissingObjectException cause) throw new GitDiffException("Missing entry", cause);
+            throw new GitDiffException("Could not load commits", e);
+        }
+        // Results are collected by job index, so the order does not depend on the scheduling
+        List<R> ordered = new ArrayList<>(results.length);
+        for (Object result : results) {
+            @SuppressWarnings("unchecked") R value = (R) result;
+            ordered.add(value);
+        }
+        return ordered;
+    }
+
     public List<String> getModifiedClassesOfCommit(Repository repository, GitCommitEntry commit) throws GitDiffException {
-        try (Git git = new Git(repository)) {
-            ObjectReader reader = repository.newObjectReader();
-            CanonicalTreeParser tree = new CanonicalTreeParser();
-            tree.reset(reader, commit.tree());
-            DiffCommand command = git.diff().setNewTree(tree);
-            List<String> modified = new ArrayList<>();
-            for (RevTree parentTree : commit.parents()) {
-                CanonicalTreeParser parent = new CanonicalTreeParser();
-                parent.reset(reader, parentTree);
-                command.setOldTree(parent);
-                List<String> classes = command.call().stream().map(DiffEntry::getNewPath).toList();
-                modified.addAll(classes);
-            }
-            return modified;
+        try (ObjectReader reader = repository.newObjectReader();
+             DiffFormatter diffFormatter = newFormatter(repository, reader)) {
+            return modifiedClasses(diffFormatter, reader, commit);
         } catch (IOException e) {
             throw new GitDiffException("Tree is invalid", e);
-        } catch (GitAPIException e) {
-            throw new GitDiffException("Could not execute diff command", e);
         }
     }
 
-    // Calculate added and deleted lines based on the edit list
-    private Pair<Integer, Integer> calculateAddedAndDeleted(EditList list) {
-        int added = 0;
-        int deleted = 0;
-        for (Edit edit : list) {
-            int lengthDifference = edit.getLengthB() - edit.getLengthA();
-            if (edit.getType() == Edit.Type.INSERT)
-                added += lengthDifference;
-            else if (edit.getType() == Edit.Type.DELETE)
-                deleted -= lengthDifference;
-            else if (edit.getType() == Edit.Type.REPLACE) {
-                if (lengthDifference > 0) added += lengthDifference;
-                else if (lengthDifference < 0) deleted += lengthDifference;
-            }
+    // Parallel version of `getModifiedClassesOfCommit`: maps the ordinal of every commit to its modified classes
+    public Map<Integer, List<String>> getModifiedClassesOfCommits(Repository repository, List<GitCommitEntry> commits, ForkJoinPool pool) throws GitDiffException {
+        List<List<String>> results = runInParallel(repository, commits, pool, this::modifiedClasses);
+        Map<Integer, List<String>> modified = new HashMap<>();
+        for (int i = 0; i < commits.size(); i++)
+            modified.put(commits.get(i).ordinal(), results.get(i));
+        return modified;
+    }
+
+    // Paths changed by the commit with respect to each of its parents
+    private List<String> modifiedClasses(DiffFormatter diffFormatter, ObjectReader reader, GitCommitEntry commit) throws IOException {
+        diffFormatter.setPathFilter(TreeFilter.ALL);
+        List<String> modified = new ArrayList<>();
+        for (ObjectId parentTree : commit.parents()) {
+            List<String> classes = diffFormatter.scan(parentTree, commit.tree()).stream().map(DiffEntry::getNewPath).toList();
+            modified.addAll(classes);
         }
-        return new Pair<>(added, deleted);
+        return modified;
+    }
+
+    // The same pair of blobs is compared by many metrics (and runs): the lines are counted only on a cache miss
+    private GitDiffEntry toDiffEntry(ObjectReader reader, DiffEntry diff, GitDiffCache cache) throws IOException {
+        ObjectId oldId = diff.getOldId().toObjectId();
+        ObjectId newId = diff.getNewId().toObjectId();
+        Pair<Integer, Integer> addedAndDeleted = cache.get(oldId, newId);
+        if (addedAndDeleted == null) {
+            // Counted with the threshold of the cache, so that the stored counts stay consistent
+            GitLineDiffController controller = new GitLineDiffController(cache.bigFileThreshold());
+            addedAndDeleted = controller.countAddedAndDeleted(reader, diff);
+            cache.put(oldId, newId, addedAndDeleted.first(), addedAndDeleted.second());
+        }
+        return new GitDiffEntry(diff, addedAndDeleted.first(), addedAndDeleted.second());
+    }
+
+    // Formatter disabling output, reading the objects with `reader`
+    private DiffFormatter newFormatter(Repository repository, ObjectReader reader) {
+        DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+        diffFormatter.setReader(reader, repository.getConfig());
+        return diffFormatter;
+    }
+
+    @FunctionalInterface
+    private interface DiffJob<T, R> {
+        R apply(DiffFormatter diffFormatter, ObjectReader reader, T job) throws IOException;
     }
 }
@@ -0,0 +1,106 @@
+package it.uniroma2.alessandrolioi.git.controllers;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import org.eclipse.jgit.diff.*;
+import org.eclipse.jgit.errors.BinaryBlobException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.storage.pack.PackConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Counts the added and deleted lines of a DiffEntry, without building the patch (FileHeader) of the entry
+public class GitLineDiffController {
+    // Same default threshold of JGit (core.bigFileThreshold)
+    public static final int DEFAULT_BIG_FILE_THRESHOLD = PackConfig.DEFAULT_BIG_FILE_THRESHOLD;
+
+    // Blobs bigger than this (in bytes) are not diffed: the counts are approximated from the number of lines
+    private final int bigFileThreshold;
+    // Same algorithm used by DiffFormatter by default
+    private final DiffAlgorithm algorithm;
+
+    public GitLineDiffController() {
+        this(DEFAULT_BIG_FILE_THRESHOLD);
+    }
+
+    public GitLineDiffController(int bigFileThreshold) {
+        this.bigFileThreshold = bigFileThreshold;
+        this.algorithm = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+    }
+
+    public Pair<Integer, Integer> countAddedAndDeleted(ObjectReader reader, DiffEntry diff) throws IOException {
+        ObjectLoader oldBlob = open(reader, diff, DiffEntry.Side.OLD);
+        ObjectLoader newBlob = open(reader, diff, DiffEntry.Side.NEW);
+        // Oversized blob (i.e. generated or vendored files): the whole file is considered a single edit
+        if (isOversized(oldBlob) || isOversized(newBlob)) {
+            EditList approximated = new EditList();
+            int oldLines = countLines(oldBlob);
+            int newLines = countLines(newBlob);
+            if (oldLines != 0 || newLines != 0) approximated.add(new Edit(0, oldLines, 0, newLines));
+            return calculateAddedAndDeleted(approximated);
+        }
+        try {
+            RawText oldText = load(oldBlob);
+            RawText newText = load(newBlob);
+            return calculateAddedAndDeleted(algorithm.diff(RawTextComparator.DEFAULT, oldText, newText));
+        } catch (BinaryBlobException e) {
+            // Binary files have no lines (same as the patch created by DiffFormatter)
+            return new Pair<>(0, 0);
+        }
+    }
+
+    // Calculate added and deleted lines based on the edit list
+    private Pair<Integer, Integer> calculateAddedAndDeleted(EditList list) {
+        int added = 0;
+        int deleted = 0;
+        for (Edit edit : list) {
+            int lengthDifference = edit.getLengthB() - edit.getLengthA();
+            if (edit.getType() == Edit.Type.INSERT)
+                added += lengthDifference;
+            else if (edit.getType() == Edit.Type.DELETE)
+                deleted -= lengthDifference;
+            else if (edit.getType() == Edit.Type.REPLACE) {
+                if (lengthDifference > 0) added += lengthDifference;
+                else if (lengthDifference < 0) deleted += lengthDifference;
+            }
+        }
+        return new Pair<>(added, deleted);
+    }
+
+    // Returns the loader of one side of the entry, or null if that side has no contents (i.e. added or deleted file)
+    private ObjectLoader open(ObjectReader reader, DiffEntry diff, DiffEntry.Side side) throws IOException {
+        FileMode mode = diff.getMode(side);
+        if (mode == FileMode.MISSING || mode.getObjectType() != Constants.OBJ_BLOB) return null;
+        return reader.open(diff.getId(side).toObjectId(), Constants.OBJ_BLOB);
+    }
+
+    private boolean isOversized(ObjectLoader blob) {
+        return blob != null && blob.getSize() > bigFileThreshold;
+    }
+
+    private RawText load(ObjectLoader blob) throws IOException, BinaryBlobException {
+        if (blob == null) return RawText.EMPTY_TEXT;
+        return RawText.load(blob, bigFileThreshold);
+    }
+
+    // Number of lines of the blob, streaming its contents (the last line can be without a line terminator)
+    private int countLines(ObjectLoader blob) throws IOException {
+        if (blob == null) return 0;
+        try (InputStream stream = blob.openStream()) {
+            byte[] buffer = new byte[8192];
+            int lines = 0;
+            byte last = '\n';
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') lines++;
+                }
+                if (read > 0) last = buffer[read - 1];
+            }
+            return last == '\n' ? lines : lines + 1;
+        }
+    }
+}
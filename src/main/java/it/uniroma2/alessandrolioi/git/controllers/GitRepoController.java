@@ -5,10 +5,10 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.eclipse.jgit.transport.TagOpt;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class GitRepoController {
@@ -23,29 +23,40 @@ public class GitRepoController {
         }
     }
 
-    public Repository cloneRemote(File folder, String url, String branch) throws GitRepoException {
-        if (folder.exists()) throw new GitRepoException("Local folder already exists");
+    // Keeps a bare copy of the remote in `folder`: it is cloned (without checkout) only the first time, then only the new objects are fetched
+    public Repository openMirror(File folder, String url, String branch) throws GitRepoException {
+        if (folder.isFile()) throw new GitRepoException("The path points to a file");
+        if (!folder.exists()) return cloneMirror(folder, url, branch);
         try {
-            Git.cloneRepository()
-                    .setURI(url)
-                    .setDirectory(folder)
-                    .setBranch(branch)
-                    .call()
-                    .close();
-            return loadLocal(folder);
+            Repository repository = new RepositoryBuilder().setGitDir(folder).setBare().build();
+            try (Git git = Git.wrap(repository)) {
+                git.fetch()
+                        .setRemote("origin")
+                        .setTagOpt(TagOpt.FETCH_TAGS)
+                        .call();
+            }
+            return repository;
+        } catch (IOException e) {
+            throw new GitRepoException("Could not load mirror", e);
         } catch (GitAPIException e) {
-            throw new GitRepoException("Could not clone repository", e);
+            throw new GitRepoException("Could not fetch remote repository", e);
         }
     }
 
-    public boolean recurseClean(File folder) throws IOException {
-        File[] files = folder.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                // Early return (some files could not be deleted)
-                if (!recurseClean(file)) return false;
-            }
+    private Repository cloneMirror(File folder, String url, String branch) throws GitRepoException {
+        try (Git git = Git.cloneRepository()
+                .setURI(url)
+                .setDirectory(folder)
+                .setBranch(branch)
+                .setBare(true)
+                .setNoCheckout(true)
+                .call()) {
+            // The returned repository is closed with the command: open a new one for the caller
+            return new RepositoryBuilder().setGitDir(git.getRepository().getDirectory()).setBare().build();
+        } catch (GitAPIException e) {
+            throw new GitRepoException("Could not clone repository", e);
+        } catch (IOException e) {
+            throw new GitRepoException("Could not load mirror", e);
         }
-        return Files.deleteIfExists(folder.toPath());
     }
 }
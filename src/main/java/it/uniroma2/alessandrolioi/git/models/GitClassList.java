@@ -0,0 +1,35 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+// Classes of a revision (in tree order), stored as the ids of the shared path dictionary
+public final class GitClassList extends AbstractList<String> implements RandomAccess {
+    private static final GitClassList EMPTY = new GitClassList(new int[0], new GitPathDictionary());
+
+    private final int[] ids;
+    private final GitPathDictionary dictionary;
+
+    public GitClassList(int[] ids, GitPathDictionary dictionary) {
+        this.ids = ids;
+        this.dictionary = dictionary;
+    }
+
+    public static GitClassList empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public String get(int index) {
+        return dictionary.path(ids[index]);
+    }
+
+    public int idAt(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+}
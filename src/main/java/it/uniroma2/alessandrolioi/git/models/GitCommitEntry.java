@@ -1,60 +1,72 @@
 package it.uniroma2.alessandrolioi.git.models;
 
-import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.lib.ObjectId;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 
+// View of a single commit of the store
 public final class GitCommitEntry {
-    private final String hash;
-    private final String message;
-    private final LocalDateTime commitDate;
-    private List<String> classList;
-    private String author;
-    private final RevTree tree;
-    private final List<RevTree> parents;
+    private final GitCommitStore store;
+    private final int ordinal;
+    private GitClassList classList;
 
-    public GitCommitEntry(String hash, String message, LocalDateTime commitDate, String author, RevTree tree, List<RevTree> parents) {
-        this.hash = hash;
-        this.message = message;
-        this.commitDate = commitDate;
-        this.author = author;
-        this.tree = tree;
-        this.parents = parents;
+    public GitCommitEntry(GitCommitStore store, int ordinal) {
+        this.store = store;
+        this.ordinal = ordinal;
 
-        this.classList = new ArrayList<>();
+        this.classList = GitClassList.empty();
+    }
+
+    public int ordinal() {
+        return ordinal;
     }
 
     public String hash() {
-        return hash;
+        return store.id(ordinal).getName();
     }
 
     public String message() {
-        return message;
+        return store.message(ordinal);
     }
 
     public LocalDateTime commitDate() {
-        return commitDate;
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(store.timeZone(ordinal) * 60);
+        return LocalDateTime.ofEpochSecond(store.commitTime(ordinal), 0, offset);
     }
 
-    public List<String> classList() {
+    public GitClassList classList() {
         return classList;
     }
 
-    public void setClassList(List<String> classList) {
+    public void setClassList(GitClassList classList) {
         this.classList = classList;
     }
 
     public String author() {
-        return author;
+        return store.author(ordinal);
     }
 
-    public RevTree tree() {
-        return tree;
+    public ObjectId tree() {
+        return store.tree(ordinal);
     }
 
-    public List<RevTree> parents() {
+    public List<ObjectId> parents() {
+        List<ObjectId> parents = new ArrayList<>(store.parentCount(ordinal));
+        for (int i = 0; i < store.parentCount(ordinal); i++)
+            parents.add(store.tree(store.parent(ordinal, i)));
         return parents;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GitCommitEntry other && other.store == store && other.ordinal == ordinal;
+    }
+
+    @Override
+    public int hashCode() {
+        return ordinal;
+    }
 }
@@ -0,0 +1,179 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+// Columnar store of the commits: the i-th element of every column is the value of the commit with ordinal i
+public final class GitCommitStore {
+    private static final int ID_LENGTH = Constants.OBJECT_ID_LENGTH;
+
+    private final int size;
+    // Raw ids of the commits and of their trees (20 bytes each)
+    private final byte[] ids;
+    private final byte[] trees;
+    // Commit time (epoch seconds) and timezone offset (minutes) of the committer
+    private final long[] commitTimes;
+    private final int[] timeZones;
+    // Author of every commit, as an index in the `authorNames` dictionary
+    private final int[] authors;
+    private final List<String> authorNames;
+    // Parents of the i-th commit are parents[parentOffsets[i]..parentOffsets[i + 1]]
+    private final int[] parentOffsets;
+    private final int[] parents;
+    // Open-addressing table mapping the commit id to (ordinal + 1); 0 marks an empty slot
+    private final int[] table;
+    // Short messages are loaded only when they are requested (and not kept)
+    private final MessageLoader loader;
+
+    // `commits` has to be sorted by ascending commit time
+    public GitCommitStore(List<RevCommit> commits, MessageLoader loader) {
+        this.size = commits.size();
+        this.ids = new byte[size * ID_LENGTH];
+        this.trees = new byte[size * ID_LENGTH];
+        this.commitTimes = new long[size];
+        this.timeZones = new int[size];
+        this.authors = new int[size];
+        this.authorNames = new ArrayList<>();
+        this.parentOffsets = new int[size + 1];
+        this.table = new int[Integer.highestOneBit(Math.max(size, 1) * 2) * 2];
+        this.loader = loader;
+
+        Map<String, Integer> authorIds = new HashMap<>();
+        int totalParents = 0;
+        for (int i = 0; i < size; i++) {
+            RevCommit commit = commits.get(i);
+            commit.copyRawTo(ids, i * ID_LENGTH);
+            commit.getTree().copyRawTo(trees, i * ID_LENGTH);
+            PersonIdent committer = commit.getCommitterIdent();
+            commitTimes[i] = committer.getWhenAsInstant().getEpochSecond();
+            timeZones[i] = committer.getTimeZoneOffset();
+            authors[i] = authorIds.computeIfAbsent(commit.getAuthorIdent().getName(), name -> {
+                authorNames.add(name);
+                return authorNames.size() - 1;
+            });
+            insert(i);
+            totalParents += commit.getParentCount();
+        }
+        // Parents are resolved after every commit is indexed (a parent could have a later commit time)
+        this.parents = new int[totalParents];
+        for (int i = 0; i < size; i++) {
+            RevCommit commit = commits.get(i);
+            parentOffsets[i + 1] = parentOffsets[i];
+            for (RevCommit parent : commit.getParents()) {
+                int ordinal = ordinalOf(parent);
+                // Parents missing from the walk (i.e. shallow history) are skipped
+                if (ordinal != -1) parents[parentOffsets[i + 1]++] = ordinal;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the ordinal of the commit, or -1 if it is not stored
+    public int ordinalOf(AnyObjectId id) {
+        byte[] raw = new byte[ID_LENGTH];
+        id.copyRawTo(raw, 0);
+        int mask = table.length - 1;
+        for (int slot = id.hashCode() & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int ordinal = table[slot] - 1;
+            if (ObjectId.equals(ids, ordinal * ID_LENGTH, raw, 0)) return ordinal;
+        }
+        return -1;
+    }
+
+    public ObjectId id(int ordinal) {
+        return ObjectId.fromRaw(ids, ordinal * ID_LENGTH);
+    }
+
+    public ObjectId tree(int ordinal) {
+        return ObjectId.fromRaw(trees, ordinal * ID_LENGTH);
+    }
+
+    public long commitTime(int ordinal) {
+        return commitTimes[ordinal];
+    }
+
+    public int timeZone(int ordinal) {
+        return timeZones[ordinal];
+    }
+
+    public int authorId(int ordinal) {
+        return authors[ordinal];
+    }
+
+    public String author(int ordinal) {
+        return authorNames.get(authors[ordinal]);
+    }
+
+    public int parentCount(int ordinal) {
+        return parentOffsets[ordinal + 1] - parentOffsets[ordinal];
+    }
+
+    public int parent(int ordinal, int index) {
+        return parents[parentOffsets[ordinal] + index];
+    }
+
+    // Ordinals of the commits reachable from the commit (itself included), following the stored parents
+    public BitSet reachableFrom(int ordinal) {
+        BitSet reachable = new BitSet(size);
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = ordinal;
+        reachable.set(ordinal);
+        while (top > 0) {
+            int current = stack[--top];
+            for (int i = 0; i < parentCount(current); i++) {
+                int parent = parent(current, i);
+                if (reachable.get(parent)) continue;
+                reachable.set(parent);
+                if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = parent;
+            }
+        }
+        return reachable;
+    }
+
+    public String message(int ordinal) {
+        String[] message = new String[1];
+        try {
+            loader.load(1, i -> id(ordinal), (loaded, i) -> message[0] = loaded);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load message of %s".formatted(id(ordinal).getName()), e);
+        }
+        return message[0];
+    }
+
+    // Calls `action` with the message and the ordinal of every commit, in ascending order of ordinal
+    public void forEachMessage(ObjIntConsumer<String> action) {
+        try {
+            loader.load(size, this::id, action);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load messages", e);
+        }
+    }
+
+    private void insert(int ordinal) {
+        int mask = table.length - 1;
+        int slot = ObjectId.fromRaw(ids, ordinal * ID_LENGTH).hashCode() & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = ordinal + 1;
+    }
+
+    // Loads the messages of several commits at once (i.e. with a single reader)
+    @FunctionalInterface
+    public interface MessageLoader {
+        // Calls `action` with the short message and the index of the commits ids(0), ..., ids(count - 1), in this order
+        void load(int count, IntFunction<ObjectId> ids, ObjIntConsumer<String> action) throws IOException;
+    }
+}
@@ -0,0 +1,54 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Commit dates of the store, searched with binary searches.
+// Commits are sorted by commit time, but their local dates (commit time + timezone of the committer) are not:
+// a commit is local-after `date` only if its commit time is at least `date - maxOffset`
+public final class GitCommitTimeline {
+    private final int size;
+    // Local date of every commit, as epoch seconds
+    private final long[] localTimes;
+    // maxTimes[i] is the max commit time of commits[0..i] (sorted even if clock skew breaks the order of the walk)
+    private final long[] maxTimes;
+    // Max timezone offset (in seconds) of the commits
+    private final long maxOffset;
+
+    public GitCommitTimeline(GitCommitStore store) {
+        this.size = store.size();
+        this.localTimes = new long[size];
+        this.maxTimes = new long[size];
+
+        long offset = 0;
+        for (int i = 0; i < size; i++) {
+            long time = store.commitTime(i);
+            localTimes[i] = time + store.timeZone(i) * 60L;
+            maxTimes[i] = i == 0 ? time : Math.max(maxTimes[i - 1], time);
+            offset = Math.max(offset, Math.abs(store.timeZone(i) * 60L));
+        }
+        this.maxOffset = offset;
+    }
+
+    // Ordinal of the first commit with local date not before `date`, or -1 if there is none
+    public int firstFrom(LocalDateTime date) {
+        long local = date.toEpochSecond(ZoneOffset.UTC);
+        // Earlier commits have a commit time (and so a local date) before `date`
+        for (int i = lowerBound(local - maxOffset); i < size; i++) {
+            if (localTimes[i] >= local) return i;
+        }
+        return -1;
+    }
+
+    // Index of the first commit with max commit time not less than `time`
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxTimes[mid] < time) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
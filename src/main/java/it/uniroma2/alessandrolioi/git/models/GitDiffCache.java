@@ -0,0 +1,210 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Added and deleted lines between two blobs (content-addressed, so an entry is valid for every commit and every run).
+// Lookups of the disk tier do not lock (only appending a record to the file is serialized), the memory tier locks one of its segments.
+// Counts depend on the big file threshold (see GitLineDiffController), so the cache only holds counts computed with `bigFileThreshold`
+public final class GitDiffCache {
+    // Header of the file: magic number, big file threshold of the records
+    private static final int MAGIC = 0x47444331;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    // Each record on disk: old blob id, new blob id, added lines, deleted lines
+    private static final int RECORD_SIZE = 2 * Constants.OBJECT_ID_LENGTH + 2 * Integer.BYTES;
+    // Segments of the memory tier (a single one, hence an exact LRU, for less than SEGMENTS * MIN_SEGMENT_CAPACITY entries)
+    private static final int SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final int bigFileThreshold;
+    // Memory tier: at most `capacity` entries, the least recently used are evicted first. Keys are spread by hash over
+    // the segments, each with its own lock and an equal share of the capacity: the entry evicted is the least recently used of its segment
+    private final Segment[] recent;
+    // Disk tier (null if the cache is not persisted)
+    private volatile Disk disk;
+    private final Object appendLock;
+
+    private final AtomicLong hits;
+    private final AtomicLong diskHits;
+    private final AtomicLong misses;
+
+    public GitDiffCache(int capacity, int bigFileThreshold) {
+        this.bigFileThreshold = bigFileThreshold;
+        int segments = capacity >= SEGMENTS * MIN_SEGMENT_CAPACITY ? SEGMENTS : 1;
+        this.recent = new Segment[segments];
+        for (int i = 0; i < segments; i++) recent[i] = new Segment(Math.max(1, capacity / segments));
+        this.appendLock = new Object();
+        this.hits = new AtomicLong();
+        this.diskHits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    // Opens (or creates) the append-only file backing the disk tier
+    public void open(Path file) throws IOException {
+        synchronized (appendLock) {
+            Files.createDirectories(file.getParent());
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Records of another threshold (or of a file without header) are discarded
+            if (!hasValidHeader(channel)) {
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(bigFileThreshold).flip();
+                long position = 0;
+                while (header.hasRemaining()) position += channel.write(header, position);
+            }
+            // Drop a partially written record (i.e. the previous run was interrupted)
+            int mappedRecords = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+            channel.truncate(HEADER_SIZE + (long) mappedRecords * RECORD_SIZE);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) mappedRecords * RECORD_SIZE);
+            Map<Key, Integer> records = new ConcurrentHashMap<>();
+            byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+            for (int i = 0; i < mappedRecords; i++) {
+                mapped.get(i * RECORD_SIZE, raw);
+                ObjectId oldId = ObjectId.fromRaw(raw);
+                mapped.get(i * RECORD_SIZE + Constants.OBJECT_ID_LENGTH, raw);
+                records.put(new Key(oldId, ObjectId.fromRaw(raw)), i);
+            }
+            disk = new Disk(channel, mapped, mappedRecords, records);
+        }
+    }
+
+    // Returns the added and deleted lines between the blobs, or null if they were never computed
+    public Pair<Integer, Integer> get(AnyObjectId oldId, AnyObjectId newId) throws IOException {
+        Key key = new Key(oldId.copy(), newId.copy());
+        Pair<Integer, Integer> value = recall(key);
+        if (value != null) {
+            hits.incrementAndGet();
+            return value;
+        }
+        Disk current = disk;
+        Integer record = current != null ? current.records().get(key) : null;
+        if (record == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        value = current.read(record);
+        remember(key, value);
+        diskHits.incrementAndGet();
+        return value;
+    }
+
+    public void put(AnyObjectId oldId, AnyObjectId newId, int added, int deleted) throws IOException {
+        Key key = new Key(oldId.copy(), newId.copy());
+        remember(key, new Pair<>(added, deleted));
+        Disk current = disk;
+        if (current == null || current.records().containsKey(key)) return;
+        synchronized (appendLock) {
+            // Another thread could have appended the same entry in the meantime
+            if (current.records().containsKey(key)) return;
+            // Append the new record at the end of the file
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+            key.oldId().copyRawTo(buffer);
+            key.newId().copyRawTo(buffer);
+            buffer.putInt(added).putInt(deleted).flip();
+            long position = current.channel().size();
+            while (buffer.hasRemaining()) position += current.channel().write(buffer, position);
+            // Published only once written, so readers never see a partial record
+            current.records().put(key, (int) ((position - HEADER_SIZE) / RECORD_SIZE) - 1);
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (disk != null) disk.channel().close();
+            disk = null;
+        }
+    }
+
+    // Threshold used to count the lines stored in the cache
+    public int bigFileThreshold() {
+        return bigFileThreshold;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long diskHits() {
+        return diskHits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    private boolean hasValidHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) return false;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        while (header.hasRemaining()) position += channel.read(header, position);
+        header.flip();
+        return header.getInt() == MAGIC && header.getInt() == bigFileThreshold;
+    }
+
+    // Returns the entry of the memory tier (making it the most recently used), or null if it is not there
+    private Pair<Integer, Integer> recall(Key key) {
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    private void remember(Key key, Pair<Integer, Integer> value) {
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    private Segment segmentOf(Key key) {
+        int hash = key.hashCode();
+        return recent[(hash ^ (hash >>> 16)) & (recent.length - 1)];
+    }
+
+    private record Key(ObjectId oldId, ObjectId newId) {
+    }
+
+    // Access-ordered map dropping its least recently used entry once it holds more than `capacity` entries
+    private static final class Segment extends LinkedHashMap<Key, Pair<Integer, Integer>> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Pair<Integer, Integer>> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    // File of the disk tier: the first `mappedRecords` records (written by previous runs) are memory-mapped, after the header
+    private record Disk(FileChannel channel, MappedByteBuffer mapped, int mappedRecords, Map<Key, Integer> records) {
+        // Absolute reads, so they can be done by concurrent threads
+        private Pair<Integer, Integer> read(int record) throws IOException {
+            int offset = 2 * Constants.OBJECT_ID_LENGTH;
+            // Records appended in this run are not part of the mapped region
+            if (record < mappedRecords)
+                return new Pair<>(mapped.getInt(record * RECORD_SIZE + offset), mapped.getInt(record * RECORD_SIZE + offset + Integer.BYTES));
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES);
+            long position = HEADER_SIZE + (long) record * RECORD_SIZE + offset;
+            while (buffer.hasRemaining()) position += channel.read(buffer, position);
+            buffer.flip();
+            return new Pair<>(buffer.getInt(), buffer.getInt());
+        }
+    }
+}
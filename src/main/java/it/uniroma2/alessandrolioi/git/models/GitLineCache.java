@@ -0,0 +1,59 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class GitLineCache {
+    // Maps the id of a blob to its number of lines (blobs are immutable, so the value never changes)
+    private final Map<ObjectId, Integer> lines;
+
+    public GitLineCache() {
+        this.lines = new ConcurrentHashMap<>();
+    }
+
+    // Returns the number of lines of the blob, or -1 if it was never counted
+    public int get(AnyObjectId blob) {
+        return lines.getOrDefault(blob, -1);
+    }
+
+    public void put(AnyObjectId blob, int count) {
+        lines.put(blob.copy(), count);
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    // Loads the entries saved by a previous run (number of records, then the raw blob id and line count of each record)
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+            int records = input.readInt();
+            for (int i = 0; i < records; i++) {
+                input.readFully(raw);
+                lines.put(ObjectId.fromRaw(raw), input.readInt());
+            }
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        List<Map.Entry<ObjectId, Integer>> entries = List.copyOf(lines.entrySet());
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(entries.size());
+            for (Map.Entry<ObjectId, Integer> entry : entries) {
+                entry.getKey().copyRawTo(output);
+                output.writeInt(entry.getValue());
+            }
+        }
+    }
+}
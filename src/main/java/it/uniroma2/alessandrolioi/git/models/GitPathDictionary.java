@@ -0,0 +1,51 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shared dictionary of paths: every path is stored once and referenced by its id.
+// Only adding a path locks: lookups (i.e. of the metric tasks reading the class lists) read the published paths
+public final class GitPathDictionary {
+    // Paths by id: the array is published (volatile write) after every path added, so a reader sees every id it was given
+    private volatile String[] paths;
+    private volatile int size;
+    private final Map<String, Integer> ids;
+
+    public GitPathDictionary() {
+        this.paths = new String[64];
+        this.ids = new ConcurrentHashMap<>();
+    }
+
+    // Returns the id of the path, adding it to the dictionary if it is not present
+    public int idOf(String path) {
+        Integer id = ids.get(path);
+        return id != null ? id : add(path);
+    }
+
+    private synchronized int add(String path) {
+        // Another thread could have added the path in the meantime
+        Integer id = ids.get(path);
+        if (id != null) return id;
+        String[] current = paths;
+        if (size == current.length) current = Arrays.copyOf(current, size * 2);
+        current[size] = path;
+        paths = current;
+        // The id is visible only once the path is published
+        ids.put(path, size);
+        return size++;
+    }
+
+    // Returns the id of the path, or -1 if it is not in the dictionary
+    public int find(String path) {
+        return ids.getOrDefault(path, -1);
+    }
+
+    public String path(int id) {
+        return paths[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
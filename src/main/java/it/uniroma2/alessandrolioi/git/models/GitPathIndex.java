@@ -0,0 +1,50 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class GitPathIndex {
+    private static final int[] EMPTY = new int[0];
+
+    // Maps every path to the (ascending) ordinals of the commits touching it
+    private final Map<String, Postings> postings;
+
+    public GitPathIndex() {
+        this.postings = new HashMap<>();
+    }
+
+    // Ordinals have to be added in ascending order
+    public void add(String path, int ordinal) {
+        postings.computeIfAbsent(path, p -> new Postings()).add(ordinal);
+    }
+
+    // Returns the ordinals of the commits touching `path` reachable from `to` but not from `from`
+    // (same range of `git log from..to -- path`), in ascending order
+    public int[] commitsBetween(String path, BitSet from, BitSet to) {
+        Postings list = postings.get(path);
+        if (list == null) return EMPTY;
+        int[] ordinals = new int[list.size];
+        int count = 0;
+        for (int i = 0; i < list.size; i++) {
+            int ordinal = list.ordinals[i];
+            if (to.get(ordinal) && !from.get(ordinal)) ordinals[count++] = ordinal;
+        }
+        return Arrays.copyOf(ordinals, count);
+    }
+
+    public int size() {
+        return postings.size();
+    }
+
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size = 0;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) ordinals = Arrays.copyOf(ordinals, size * 2);
+            ordinals[size++] = ordinal;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package it.uniroma2.alessandrolioi.integration;
 
 import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.git.Git;
 import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitCommitStore;
+import it.uniroma2.alessandrolioi.git.models.GitCommitTimeline;
 import it.uniroma2.alessandrolioi.integration.controllers.FilterController;
 import it.uniroma2.alessandrolioi.integration.exceptions.NotFoundException;
+import it.uniroma2.alessandrolioi.integration.models.CommitMessageIndex;
 import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
 import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
 
@@ -11,11 +15,16 @@ import java.util.*;
 
 public class JiraGitIntegration {
     private final List<GitCommitEntry> commits;
+    private final CommitMessageIndex messageIndex;
+    private final GitCommitTimeline timeline;
     private final List<Pair<JiraVersion, GitCommitEntry>> versions;
     private final Map<JiraIssue, GitCommitEntry> issues;
 
-    public JiraGitIntegration(List<GitCommitEntry> commits) {
-        this.commits = commits;
+    public JiraGitIntegration(Git git) {
+        this.commits = git.getCommits();
+        GitCommitStore store = git.getCommitStore();
+        this.messageIndex = new CommitMessageIndex(store::forEachMessage);
+        this.timeline = git.getTimeline();
         this.versions = new ArrayList<>();
         this.issues = new HashMap<>();
     }
@@ -36,9 +45,9 @@ public class JiraGitIntegration {
         FilterController filter = new FilterController();
         GitCommitEntry candidate;
         try {
-            candidate = filter.useSemanticFilter(version.name(), commits);
+            candidate = filter.useSemanticFilter(version.name(), messageIndex, commits);
         } catch (NotFoundException e) {
-            candidate = filter.useDateFilter(version.releaseDate(), commits);
+            candidate = filter.useDateFilter(version.releaseDate(), timeline, commits);
         }
         return candidate;
     }
@@ -47,9 +56,9 @@ public class JiraGitIntegration {
         FilterController filter = new FilterController();
         GitCommitEntry candidate;
         try {
-            candidate = filter.useSemanticKeyFilter(issue.getKey(), commits);
+            candidate = filter.useSemanticKeyFilter(issue.getKey(), messageIndex, commits);
         } catch (NotFoundException e) {
-            candidate = filter.useDateFilter(issue.getResolution(), commits);
+            candidate = filter.useDateFilter(issue.getResolution(), timeline, commits);
         }
         return candidate;
     }
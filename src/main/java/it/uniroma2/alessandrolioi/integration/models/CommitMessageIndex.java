@@ -0,0 +1,69 @@
+package it.uniroma2.alessandrolioi.integration.models;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.regex.Pattern;
+
+// Index of the commit messages used to find the commits of the releases and of the issues, built in a single pass.
+// Lookups give the same commit of the filters scanning every message (see FilterController before user-021):
+// only the messages that can match are kept, and they are checked with the same conditions
+public final class CommitMessageIndex {
+    private static final String TAG = "Tag";
+    private static final String BOOKKEEPER = "BookKeeper ";
+
+    // First token of the messages (up to the first whitespace) -> ordinal of the first commit starting with it
+    private final NavigableMap<String, Integer> heads;
+    // Messages containing `Tag` or `BookKeeper `, in ascending order of ordinal
+    private final List<Candidate> releases;
+
+    // `messages` calls its argument with the message and the ordinal of every commit, in ascending order of ordinal
+    // (i.e. GitCommitStore::forEachMessage): messages are not kept, only the parts needed by the lookups
+    public CommitMessageIndex(Consumer<ObjIntConsumer<String>> messages) {
+        this.heads = new TreeMap<>();
+        this.releases = new ArrayList<>();
+        messages.accept(this::add);
+    }
+
+    private void add(String message, int ordinal) {
+        heads.putIfAbsent(headOf(message), ordinal);
+        if (message.contains(TAG) || message.contains(BOOKKEEPER))
+            releases.add(new Candidate(ordinal, message));
+    }
+
+    // Returns the ordinal of the first commit whose message starts with the key, or -1 if there is none
+    // (Jira keys have no whitespace, so the message starts with the key only if its first token does)
+    public int firstWithKey(String key) {
+        int first = -1;
+        // Tokens starting with the key are consecutive | i.e. AVRO-1, AVRO-1:, AVRO-10
+        for (Map.Entry<String, Integer> head : heads.tailMap(key, true).entrySet()) {
+            if (!head.getKey().startsWith(key)) break;
+            if (first == -1 || head.getValue() < first) first = head.getValue();
+        }
+        return first;
+    }
+
+    // Returns the ordinal of the last commit tagging the release, or -1 if there is none.
+    // Release commits follow the pattern `BookKeeper VERSION_NAME release` or `Tag* VERSION_NAME[ release]`
+    // (the name is part of the regex, as before: i.e. `.` matches any character)
+    public int lastWithRelease(String name) {
+        Pattern tagPattern = Pattern.compile("Tag.* %s(| release)".formatted(name));
+        String bookkeeperRelease = "BookKeeper %s release".formatted(name);
+        for (int i = releases.size() - 1; i >= 0; i--) {
+            String message = releases.get(i).message();
+            if (tagPattern.matcher(message).find() || message.contains(bookkeeperRelease))
+                return releases.get(i).ordinal();
+        }
+        return -1;
+    }
+
+    private String headOf(String message) {
+        for (int i = 0; i < message.length(); i++) {
+            if (Character.isWhitespace(message.charAt(i))) return message.substring(0, i);
+        }
+        return message;
+    }
+
+    private record Candidate(int ordinal, String message) {
+    }
+}
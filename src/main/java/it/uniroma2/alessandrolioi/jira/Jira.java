@@ -2,9 +2,12 @@ package it.uniroma2.alessandrolioi.jira;
 
 import it.uniroma2.alessandrolioi.jira.controllers.JiraIssueController;
 import it.uniroma2.alessandrolioi.jira.controllers.JiraProportionController;
+import it.uniroma2.alessandrolioi.jira.controllers.JiraRestController;
 import it.uniroma2.alessandrolioi.jira.controllers.JiraVersionController;
 import it.uniroma2.alessandrolioi.jira.exceptions.JiraRestException;
 import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraProportionEngine;
+import it.uniroma2.alessandrolioi.jira.models.JiraRestStats;
 import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
 
 import java.util.List;
@@ -16,23 +19,43 @@ public class Jira {
 
     private final List<JiraVersion> versions;
     private final List<JiraIssue> issues;
+    // Created by the first `applyProportion`, then kept to process only the tickets added later
+    private JiraProportionEngine proportion;
 
     public Jira(String project, String additionalParams) throws JiraRestException {
+        // Load versions from Jira API
+        this(project, additionalParams, new JiraVersionController().loadVersions(project));
+    }
+
+    // Versions already loaded from Jira API
+    public Jira(String project, String additionalParams, List<JiraVersion> versions) throws JiraRestException {
         if (logger.isLoggable(Level.INFO))
             logger.info("Loading versions and tickets");
-        JiraVersionController versionController = new JiraVersionController();
         JiraIssueController issueController = new JiraIssueController();
 
-        // Load versions from Jira API
-        versions = versionController.loadVersions(project);
+        this.versions = versions;
         JiraVersion first = versions.get(0);
         JiraVersion last = versions.get(versions.size() - 1);
         // Load issues from Jira API from the first and last version considered
         issues = issueController.loadIssues(project, additionalParams, first.releaseDate(), last.releaseDate());
         // Initial version classification
         issueController.classifyIssues(versions, issues);
-        if (logger.isLoggable(Level.INFO))
-            logger.info("Versions and tickets successfully loaded");
+        if (logger.isLoggable(Level.INFO)) {
+            JiraRestStats stats = JiraRestController.stats();
+            // Totals of the run, not of this project: projects can also be loaded concurrently (see JiraColdStart)
+            logger.info("Versions and tickets successfully loaded (Jira totals so far: %d requests, %d retries, %d bytes, %.1f ms on average)"
+                    .formatted(stats.requests(), stats.retries(), stats.bytes(), stats.averageLatencyMillis()));
+        }
+    }
+
+    // Versions and issues already loaded from Jira API (i.e. by a batched query)
+    public Jira(List<JiraVersion> versions, List<JiraIssue> issues) {
+        JiraIssueController issueController = new JiraIssueController();
+
+        this.versions = versions;
+        this.issues = issues;
+        // Initial version classification
+        issueController.classifyIssues(versions, issues);
     }
 
     public double calculateColdStart() {
@@ -40,9 +63,22 @@ public class Jira {
         return controller.calculateProportionColdStart(issues);
     }
 
+    // The cold start of the first call is kept by the later ones
     public void applyProportion(double coldStart) {
         JiraProportionController controller = new JiraProportionController();
-        controller.applyProportionIncrement(versions, coldStart);
+        if (proportion == null) proportion = new JiraProportionEngine(versions, coldStart);
+        controller.applyProportionIncrement(proportion);
+    }
+
+    // Tickets loaded after the proportion was applied (i.e. fixed after the last load)
+    public void addIssues(List<JiraIssue> newIssues) {
+        JiraIssueController issueController = new JiraIssueController();
+        issueController.classifyIssues(versions, newIssues);
+        issues.addAll(newIssues);
+        if (proportion != null) {
+            JiraProportionController controller = new JiraProportionController();
+            controller.applyProportionIncrement(proportion, newIssues);
+        }
     }
 
     public List<JiraVersion> getVersions() {
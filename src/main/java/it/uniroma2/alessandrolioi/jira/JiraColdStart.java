@@ -0,0 +1,156 @@
+package it.uniroma2.alessandrolioi.jira;
+
+import it.uniroma2.alessandrolioi.common.Config;
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.jira.controllers.JiraColdStartController;
+import it.uniroma2.alessandrolioi.jira.controllers.JiraIssueController;
+import it.uniroma2.alessandrolioi.jira.controllers.JiraVersionController;
+import it.uniroma2.alessandrolioi.jira.exceptions.JiraRestException;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssueSummary;
+import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Cold start proportion of every project, computed once and shared by every consumer
+public class JiraColdStart {
+    static final Logger logger = Logger.getLogger("JiraColdStart");
+
+    // File where the proportions are persisted across runs
+    private final Path file;
+    // Proportions (with the fingerprint of their data) computed in this run or in a previous one
+    private final Map<String, Pair<String, Double>> persisted;
+    // Proportions already validated in this run
+    private final Map<String, Double> proportions;
+
+    public JiraColdStart(Path file) throws JiraRestException {
+        JiraColdStartController controller = new JiraColdStartController();
+        this.file = file;
+        this.proportions = new ConcurrentHashMap<>();
+        try {
+            this.persisted = new ConcurrentHashMap<>(controller.load(file));
+        } catch (IOException e) {
+            throw new JiraRestException("Could not load cold start proportions from %s".formatted(file), e);
+        }
+    }
+
+    // Median of the cold start proportions of `projects` (the missing ones are computed concurrently, see `jira.batch`)
+    public synchronized double median(List<String> projects) throws JiraRestException {
+        List<String> missing = projects.stream().distinct().filter(project -> !proportions.containsKey(project)).toList();
+        if (!missing.isEmpty()) {
+            computeProportions(missing);
+            save();
+        }
+        List<Double> coldStarts = new ArrayList<>();
+        for (String project : projects) coldStarts.add(proportions.get(project));
+        coldStarts.sort(Comparator.naturalOrder());
+        // Get Median
+        return coldStarts.get(coldStarts.size() / 2);
+    }
+
+    private void computeProportions(List<String> projects) throws JiraRestException {
+        // Versions of every project are loaded concurrently, and the saved proportions are validated
+        List<Candidate> candidates = runConcurrently(projects, this::candidateOf);
+        List<Candidate> stale = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.saved() != null) proportions.put(candidate.project(), candidate.saved());
+            else stale.add(candidate);
+        }
+        if (stale.isEmpty()) return;
+        if (Config.jiraBatch()) {
+            // A single query for the issues of every project
+            JiraIssueController issueController = new JiraIssueController();
+            Map<String, Pair<LocalDate, LocalDate>> ranges = new HashMap<>();
+            for (Candidate candidate : stale) ranges.put(candidate.project(), rangeOf(candidate.versions()));
+            Map<String, List<JiraIssue>> issues = issueController.loadIssues(ranges);
+            for (Candidate candidate : stale) {
+                double proportion = new Jira(candidate.versions(), issues.get(candidate.project())).calculateColdStart();
+                update(candidate, proportion);
+            }
+        } else {
+            runConcurrently(stale, candidate -> {
+                double proportion = new Jira(candidate.project(), "", candidate.versions()).calculateColdStart();
+                update(candidate, proportion);
+                return proportion;
+            });
+        }
+    }
+
+    // The proportion saved by a previous run is used if the data of the project did not change
+    private Candidate candidateOf(String project) throws JiraRestException {
+        JiraVersionController versionController = new JiraVersionController();
+        JiraColdStartController controller = new JiraColdStartController();
+
+        List<JiraVersion> versions = versionController.loadVersions(project);
+        // Summarized before the issues are loaded: an issue updated in the meantime makes the next run compute it again
+        JiraIssueSummary issues = summarizeIssues(project, versions);
+        String fingerprint = controller.fingerprint(versions, issues);
+        Pair<String, Double> saved = persisted.get(project);
+        if (saved == null || !saved.first().equals(fingerprint))
+            return new Candidate(project, versions, fingerprint, null);
+        if (logger.isLoggable(Level.INFO))
+            logger.info("Using saved cold start proportion of %s".formatted(project));
+        return new Candidate(project, versions, fingerprint, saved.second());
+    }
+
+    private JiraIssueSummary summarizeIssues(String project, List<JiraVersion> versions) throws JiraRestException {
+        JiraIssueController issueController = new JiraIssueController();
+        Pair<LocalDate, LocalDate> range = rangeOf(versions);
+        return issueController.summarizeIssues(project, "", range.first(), range.second());
+    }
+
+    // Same range of issues loaded by Jira
+    private Pair<LocalDate, LocalDate> rangeOf(List<JiraVersion> versions) {
+        return new Pair<>(versions.get(0).releaseDate(), versions.get(versions.size() - 1).releaseDate());
+    }
+
+    private void update(Candidate candidate, double proportion) {
+        persisted.put(candidate.project(), new Pair<>(candidate.fingerprint(), proportion));
+        proportions.put(candidate.project(), proportion);
+    }
+
+    // Runs the task on every element, at most `jira.parallelism` at a time (results are in the same order of `elements`)
+    private <T, R> List<R> runConcurrently(List<T> elements, Task<T, R> task) throws JiraRestException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(Config.jiraParallelism(), elements.size()));
+        try {
+            List<Future<R>> futures = new ArrayList<>();
+            for (T element : elements)
+                futures.add(executor.submit(() -> task.apply(element)));
+            List<R> results = new ArrayList<>();
+            for (Future<R> future : futures) results.add(future.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JiraRestException("Interrupted while computing cold start proportions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof JiraRestException cause) throw cause;
+            throw new JiraRestException("Could not compute cold start proportions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void save() throws JiraRestException {
+        JiraColdStartController controller = new JiraColdStartController();
+        try {
+            controller.save(file, persisted);
+        } catch (IOException e) {
+            throw new JiraRestException("Could not save cold start proportions to %s".formatted(file), e);
+        }
+    }
+
+    // Project with its versions and the fingerprint of its data; saved is null if the proportion has to be computed
+    private record Candidate(String project, List<JiraVersion> versions, String fingerprint, Double saved) {
+    }
+
+    @FunctionalInterface
+    private interface Task<T, R> {
+        R apply(T element) throws JiraRestException;
+    }
+}
@@ -0,0 +1,63 @@
+package it.uniroma2.alessandrolioi.jira.controllers;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssueSummary;
+import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class JiraColdStartController {
+    // Identifies the data used to compute the proportion of a project: its versions, the number of issues in their range
+    // and the last update of one of them (editing the versions of an issue updates it)
+    public String fingerprint(List<JiraVersion> versions, JiraIssueSummary issues) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (JiraVersion version : versions)
+                digest.update("%s@%s\n".formatted(version.name(), version.releaseDate()).getBytes(StandardCharsets.UTF_8));
+            digest.update("%d@%s".formatted(issues.total(), issues.lastUpdated()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Maps every project to the fingerprint and proportion saved in `file` (in the form `project=fingerprint;proportion`)
+    public Map<String, Pair<String, Double>> load(Path file) throws IOException {
+        Map<String, Pair<String, Double>> proportions = new HashMap<>();
+        if (!Files.exists(file)) return proportions;
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            properties.load(input);
+        }
+        for (String project : properties.stringPropertyNames()) {
+            String[] value = properties.getProperty(project).split(";");
+            if (value.length != 2) continue;
+            proportions.put(project, new Pair<>(value[0], Double.parseDouble(value[1])));
+        }
+        return proportions;
+    }
+
+    public void save(Path file, Map<String, Pair<String, Double>> proportions) throws IOException {
+        // A file name without folders (i.e. `cold-start.properties`) has no parent: it is in the working directory
+        Path folder = file.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        Properties properties = new Properties();
+        for (Map.Entry<String, Pair<String, Double>> entry : proportions.entrySet())
+            properties.setProperty(entry.getKey(), "%s;%s".formatted(entry.getValue().first(), entry.getValue().second()));
+        try (OutputStream output = Files.newOutputStream(file)) {
+            properties.store(output, "Cold start proportions");
+        }
+    }
+}
@@ -2,148 +2,354 @@ package it.uniroma2.alessandrolioi.jira.controllers;
 
 import it.uniroma2.alessandrolioi.jira.exceptions.JiraRestException;
 import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssueSummary;
+import it.uniroma2.alessandrolioi.jira.models.JiraReleaseTimeline;
 import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+import it.uniroma2.alessandrolioi.common.Config;
 import it.uniroma2.alessandrolioi.common.Pair;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 public class JiraIssueController {
+    // Thread-safe: shared by the pages loaded concurrently
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int MAX_RESULTS = 1000;
+    // Query to get all bug fix issues
+    private static final String BUG_FIXES = "issueType=Bug AND(status=closed OR status=resolved)AND resolution=fixed";
+
     public List<JiraIssue> loadIssues(String project, String additionalParams, LocalDate firstVersion, LocalDate lastVersion) throws JiraRestException {
+        // Same query (hence the same URLs and cached responses) of the serial load
+        String jql = projectJql(project, additionalParams, firstVersion, lastVersion);
         List<JiraIssue> issues = new ArrayList<>();
-        int total;
-        int totalDecrement = 0; // total skipped issues (missing required fields)
-        int startAt = 0;
-        do {
-            String url = "https://issues.apache.org/jira/rest/api/2/search" +
-                    "?jql=project=" + project + // selecting the project
-                    " AND issueType=Bug AND(status=closed OR status=resolved)AND resolution=fixed" + // query to get all bug fix issues
-                    // select issues resolved in [firstVersion, lastVersion]
-                    " AND resolved>=%s AND resolved<=%s".formatted(firstVersion.toString(), lastVersion.toString()) +
-                    " %s".formatted(additionalParams) +
-                    "&fields=" + String.join(",", JiraIssue.getFields()) + // fields
-                    "&startAt=" + startAt + // pagination offset
-                    "&maxResults=1000"; // max results loaded
-            // Correctly format URL
-            String correctedUrl = url.replace(" ", "%20").replace(">=", "%3E%3D").replace("<=", "%3C%3D");
-            // Load JSON
-            JiraRestController rest = new JiraRestController();
-            String json = rest.getJsonFromUrl(correctedUrl);
-            JSONObject result = new JSONObject(json);
-            total = result.getInt("total"); // total number of issues
-            JSONArray jsonIssues = result.getJSONArray("issues");
-            // Iterate through all the issues
-            for (int i = 0; i < jsonIssues.length(); i++) {
-                JSONObject jsonIssue = jsonIssues.getJSONObject(i);
-                JSONObject fields = jsonIssue.getJSONObject("fields");
-                // The issue does not have the required information, so it can be skipped
-                if (!jsonIssue.has(JiraIssue.KEY_FIELD) || !fields.has(JiraIssue.RESOLUTION_DATE_FIELD) || !fields.has(JiraIssue.CREATED_FIELD)) {
-                    totalDecrement += 1;
-                    continue;
-                }
-                String key = jsonIssue.getString(JiraIssue.KEY_FIELD); // e.s. BOOKKEEPER-1
-                String resolutionString = fields.getString(JiraIssue.RESOLUTION_DATE_FIELD);
-                String createdString = fields.getString(JiraIssue.CREATED_FIELD);
-                // Parse the dates
-                LocalDate resolution = LocalDate.parse(resolutionString.substring(0, 10));
-                LocalDate created = LocalDate.parse(createdString.substring(0, 10));
-                // Get the highest fix version on Jira
-                // Case: issue was reopened multiple times (so there are more than one fix version) ~ resolutiondate is only for the first one | BOOKKEEPER - 695
-                List<LocalDate> fixVersions = getVersionsFromJsonArray(fields.getJSONArray(JiraIssue.FIX_VERSIONS_FIELD));
-                // Case: multiple fix versions (after resolution date) | BOOKKEEPER-695
-                Optional<LocalDate> fix = fixVersions.stream().max(Comparator.naturalOrder());
-                // Replace the current resolution date to the fix version on Jira (sometimes the issue is reopened, but the resolution date is not updated)
-                // Case: fix version on Jira has a release date after the created field | i.e. BOOKKEEPER-774
-                //       (BOOKKEEPER-774 is not present in the issue list because it's after the last version considered)
-                if (fix.isPresent() && fix.get().isAfter(created) && !fix.get().isAfter(lastVersion))
-                    resolution = fix.get();
-
-                // Get affected versions from Jira and sort them
-                List<LocalDate> affectedVersions = getVersionsFromJsonArray(fields.getJSONArray(JiraIssue.VERSIONS_FIELD));
-                affectedVersions.sort(Comparator.naturalOrder());
-
-                JiraIssue issue = new JiraIssue(key, resolution, created, affectedVersions);
-                issues.add(issue);
-            }
-            startAt += result.getInt("maxResults");
-        } while (total - totalDecrement != issues.size());
+        for (Page page : loadPages(jql, key -> lastVersion, project)) issues.addAll(page.issues());
         Collections.reverse(issues); // sorted by key
         return issues;
     }
 
+    // Issues of every project (resolved in its range of versions) loaded with a single query, then split by project
+    public Map<String, List<JiraIssue>> loadIssues(Map<String, Pair<LocalDate, LocalDate>> ranges) throws JiraRestException {
+        // Jira keys start with the project key in upper case | i.e. OPENJPA-1
+        Map<String, String> projectOfKey = new HashMap<>();
+        StringJoiner projects = new StringJoiner(" OR ", "(", ")");
+        for (Map.Entry<String, Pair<LocalDate, LocalDate>> range : ranges.entrySet()) {
+            projectOfKey.put(range.getKey().toUpperCase(), range.getKey());
+            projects.add("(project=%s AND resolved>=%s AND resolved<=%s)".formatted(range.getKey(), range.getValue().first(), range.getValue().second()));
+        }
+        // Ordered by key, so that the issues of every project are in the same order of `loadIssues`
+        String jql = BUG_FIXES + " AND " + projects + " ORDER BY key DESC";
+        List<Page> pages = loadPages(jql, key -> {
+            String project = projectOfKey.get(projectKeyOf(key));
+            return project != null ? ranges.get(project).second() : null;
+        }, String.join(",", ranges.keySet()));
+
+        Map<String, List<JiraIssue>> issues = new HashMap<>();
+        for (String project : ranges.keySet()) issues.put(project, new ArrayList<>());
+        for (Page page : pages) {
+            for (JiraIssue issue : page.issues())
+                issues.get(projectOfKey.get(projectKeyOf(issue.getKey()))).add(issue);
+        }
+        for (List<JiraIssue> projectIssues : issues.values())
+            Collections.reverse(projectIssues); // sorted by key
+        return issues;
+    }
+
+    // Number of issues of the query used by `loadIssues` and last update of one of them (only the last updated issue is loaded)
+    public JiraIssueSummary summarizeIssues(String project, String additionalParams, LocalDate firstVersion, LocalDate lastVersion) throws JiraRestException {
+        String jql = projectJql(project, additionalParams, firstVersion, lastVersion) + " ORDER BY updated DESC";
+        String url = searchUrl(jql, JiraIssue.UPDATED_FIELD, 0, 1);
+        JiraRestController rest = new JiraRestController();
+        String json = rest.getJsonFromUrl(url);
+        try (JsonParser parser = JSON.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new JiraRestException("Unexpected page format: %s".formatted(url), null);
+            return parseSummary(parser);
+        } catch (IOException e) {
+            throw new JiraRestException("Could not parse page: %s".formatted(url), e);
+        }
+    }
+
+    // Loads every page of the query: `lastVersionOf` maps the key of an issue to the last version of its project
+    private List<Page> loadPages(String jql, Function<String, LocalDate> lastVersionOf, String description) throws JiraRestException {
+        // The first page is needed to know the total number of issues and the page size used by Jira
+        Page first = loadPage(searchUrl(jql, JiraIssue.getFields(), 0, MAX_RESULTS), lastVersionOf);
+        // If the page has no `maxResults` (or it is 0), the size of the page is the number of issues it contains
+        int pageSize = first.maxResults();
+        if (pageSize <= 0) pageSize = first.keys().isEmpty() ? MAX_RESULTS : first.keys().size();
+        List<Integer> offsets = new ArrayList<>();
+        for (int startAt = pageSize; startAt < first.total(); startAt += pageSize)
+            offsets.add(startAt);
+        // Remaining pages are loaded concurrently
+        List<Page> pages = new ArrayList<>();
+        pages.add(first);
+        if (!offsets.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(Config.jiraParallelism(), offsets.size()));
+            try {
+                List<Future<Page>> futures = new ArrayList<>();
+                for (int startAt : offsets) {
+                    String url = searchUrl(jql, JiraIssue.getFields(), startAt, MAX_RESULTS);
+                    futures.add(executor.submit(() -> loadPage(url, lastVersionOf)));
+                }
+                // Pages are merged in the order of `startAt`, so the issues are in the same order of the serial load
+                for (Future<Page> future : futures) pages.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JiraRestException("Interrupted while loading issues of %s".formatted(description), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof JiraRestException cause) throw cause;
+                throw new JiraRestException("Could not load issues of %s".formatted(description), e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return pages;
+    }
+
+    private String projectJql(String project, String additionalParams, LocalDate firstVersion, LocalDate lastVersion) {
+        return "project=" + project + // selecting the project
+                " AND " + BUG_FIXES +
+                // select issues resolved in [firstVersion, lastVersion]
+                " AND resolved>=%s AND resolved<=%s".formatted(firstVersion.toString(), lastVersion.toString()) +
+                " %s".formatted(additionalParams);
+    }
+
+    private String searchUrl(String jql, String fields, int startAt, int maxResults) {
+        String url = Config.jiraUrl() + "/rest/api/2/search" +
+                "?jql=" + jql +
+                "&fields=" + fields + // fields
+                "&startAt=" + startAt + // pagination offset
+                "&maxResults=" + maxResults; // max results loaded
+        // Correctly format URL
+        return url.replace(" ", "%20").replace(">=", "%3E%3D").replace("<=", "%3C%3D");
+    }
+
+    // Project key of an issue key | i.e. BOOKKEEPER-1 -> BOOKKEEPER
+    private String projectKeyOf(String key) {
+        int separator = key.lastIndexOf('-');
+        return separator != -1 ? key.substring(0, separator) : key;
+    }
+
+    // Issues of a search page already loaded (i.e. a recorded response) of a project whose last version is `lastVersion`
+    public List<JiraIssue> parseIssues(String json, LocalDate lastVersion) throws JiraRestException {
+        return parsePage(json, "recorded page", key -> lastVersion).issues();
+    }
+
+    private Page loadPage(String url, Function<String, LocalDate> lastVersionOf) throws JiraRestException {
+        // Load JSON
+        JiraRestController rest = new JiraRestController();
+        String json = rest.getJsonFromUrl(url);
+        return parsePage(json, url, lastVersionOf);
+    }
+
+    private Page parsePage(String json, String url, Function<String, LocalDate> lastVersionOf) throws JiraRestException {
+        // Only the required fields are read from the page, without building the JSON tree
+        try (JsonParser parser = JSON.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new JiraRestException("Unexpected page format: %s".formatted(url), null);
+            return parsePage(parser, lastVersionOf);
+        } catch (IOException e) {
+            throw new JiraRestException("Could not parse page: %s".formatted(url), e);
+        }
+    }
+
+    private Page parsePage(JsonParser parser, Function<String, LocalDate> lastVersionOf) throws IOException {
+        List<JiraIssue> issues = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int total = 0;
+        int maxResults = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                // total: number of issues of the query; maxResults: page size (Jira can use a smaller one than the requested)
+                case "total" -> total = parser.getIntValue();
+                case "maxResults" -> maxResults = parser.getIntValue();
+                // Iterate through all the issues
+                case "issues" -> {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        JiraIssue issue = parseIssue(parser, lastVersionOf, keys);
+                        if (issue != null) issues.add(issue);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new Page(issues, keys, total, maxResults);
+    }
+
+    // Total of the page and `updated` field of its first issue (empty if there is none)
+    private JiraIssueSummary parseSummary(JsonParser parser) throws IOException {
+        int total = 0;
+        String lastUpdated = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals("total")) {
+                total = parser.getIntValue();
+            } else if (name.equals("issues") && parser.currentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String updated = parseUpdated(parser);
+                    if (lastUpdated.isEmpty() && updated != null) lastUpdated = updated;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new JiraIssueSummary(total, lastUpdated);
+    }
+
+    // Returns the `updated` field of the issue, or null if it is missing
+    private String parseUpdated(JsonParser parser) throws IOException {
+        String updated = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals("fields") && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (field.equals(JiraIssue.UPDATED_FIELD)) updated = parser.getValueAsString();
+                    else parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return updated;
+    }
+
+    // Returns null if the issue does not have the required information (the key of every issue is added to `keys`)
+    private JiraIssue parseIssue(JsonParser parser, Function<String, LocalDate> lastVersionOf, List<String> keys) throws IOException {
+        String key = null; // e.s. BOOKKEEPER-1
+        String resolutionString = null;
+        String createdString = null;
+        List<LocalDate> fixVersions = new ArrayList<>();
+        List<LocalDate> affectedVersions = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals(JiraIssue.KEY_FIELD)) {
+                key = parser.getValueAsString();
+            } else if (name.equals("fields") && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case JiraIssue.RESOLUTION_DATE_FIELD -> resolutionString = parser.getValueAsString();
+                        case JiraIssue.CREATED_FIELD -> createdString = parser.getValueAsString();
+                        case JiraIssue.FIX_VERSIONS_FIELD -> parseVersions(parser, fixVersions);
+                        case JiraIssue.VERSIONS_FIELD -> parseVersions(parser, affectedVersions);
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (key != null) keys.add(key);
+        // The issue does not have the required information (or it is not of the requested projects), so it can be skipped
+        LocalDate lastVersion = key != null ? lastVersionOf.apply(key) : null;
+        if (lastVersion == null || resolutionString == null || createdString == null) return null;
+        // Parse the dates
+        LocalDate resolution = LocalDate.parse(resolutionString.substring(0, 10));
+        LocalDate created = LocalDate.parse(createdString.substring(0, 10));
+        // Get the highest fix version on Jira
+        // Case: issue was reopened multiple times (so there are more than one fix version) ~ resolutiondate is only for the first one | BOOKKEEPER - 695
+        // Case: multiple fix versions (after resolution date) | BOOKKEEPER-695
+        Optional<LocalDate> fix = fixVersions.stream().max(Comparator.naturalOrder());
+        // Replace the current resolution date to the fix version on Jira (sometimes the issue is reopened, but the resolution date is not updated)
+        // Case: fix version on Jira has a release date after the created field | i.e. BOOKKEEPER-774
+        //       (BOOKKEEPER-774 is not present in the issue list because it's after the last version considered)
+        if (fix.isPresent() && fix.get().isAfter(created) && !fix.get().isAfter(lastVersion))
+            resolution = fix.get();
+
+        // Sort the affected versions from Jira
+        affectedVersions.sort(Comparator.naturalOrder());
+
+        return new JiraIssue(key, resolution, created, affectedVersions);
+    }
+
+    // Adds the release date of every version of the array (versions without a release date are skipped)
+    private void parseVersions(JsonParser parser, List<LocalDate> versions) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String dateString = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (name.equals(JiraVersion.RELEASE_DATE_FIELD)) dateString = parser.getValueAsString();
+                else parser.skipChildren();
+            }
+            if (dateString != null) versions.add(LocalDate.parse(dateString));
+        }
+    }
+
     public void classifyIssues(List<JiraVersion> versions, List<JiraIssue> issues) {
-        for (JiraIssue issue : issues) {
-            LocalDate firstReleaseDate = versions.get(0).releaseDate();
+        JiraReleaseTimeline timeline = new JiraReleaseTimeline(versions);
+        // Find IV, OV and FV from Jira API (based on `created`, `resolution` and the first affectedVersion)
+        // Every issue is independent, so they are searched in parallel (the versions are updated below, in the order of the issues)
+        int[][] foundVersions = issues.parallelStream().map(issue -> getVersions(issue, timeline)).toArray(int[][]::new);
+        LocalDate firstReleaseDate = versions.get(0).releaseDate();
+        for (int i = 0; i < issues.size(); i++) {
+            JiraIssue issue = issues.get(i);
 
             // Skipping the issues created and resolved before the first Jira release
             // IV, OV and FV should be the first release (it can cause problem when calculating proportion)
             if (issue.getCreated().isBefore(firstReleaseDate) && issue.getResolution().isBefore(firstReleaseDate))
                 continue;
 
-            // Find IV, OV and FV from Jira API (based on `created`, `resolution` and the first affectedVersion
-            List<Pair<JiraVersion, Integer>> foundVersions = getVersions(issue, versions);
-            Pair<JiraVersion, Integer> injected = foundVersions.get(0);
-            Pair<JiraVersion, Integer> opening = foundVersions.get(1);
-            Pair<JiraVersion, Integer> fix = foundVersions.get(2);
+            int injected = foundVersions[i][0];
+            int opening = foundVersions[i][1];
+            int fix = foundVersions[i][2];
 
             // Case: affected version in Jira is after the fix version (based on resolutiondate) | i.e. BOOKKEEPER-374
             // Affected versions in Jira is incorrect, so the injected version is invalid
-            if (!issue.getAffectedVersionsDates().isEmpty() && issue.getAffectedVersionsDates().get(0).isAfter(fix.first().releaseDate())) {
+            if (!issue.getAffectedVersionsDates().isEmpty() && issue.getAffectedVersionsDates().get(0).isAfter(versions.get(fix).releaseDate())) {
                 issue.getAffectedVersionsDates().clear();
-                injected = null;
+                injected = -1;
             }
 
             // No injected version was found but the opening version is the first release
             // So the injected must be the first release as well
-            if (injected == null && opening.first() == versions.get(0)) injected = opening;
+            if (injected == -1 && opening == 0) injected = opening;
 
             // Injected version is present (from affectedVersion, or derived as the first release)
-            if (injected != null) {
-                issue.setIvIndex(injected.second());
-                injected.first().injected().add(issue);
+            if (injected != -1) {
+                issue.setIvIndex(injected);
+                versions.get(injected).injected().add(issue);
             }
-            issue.setOvIndex(opening.second());
-            issue.setFvIndex(fix.second());
+            issue.setOvIndex(opening);
+            issue.setFvIndex(fix);
 
-            opening.first().opened().add(issue);
-            fix.first().fixed().add(issue);
+            versions.get(opening).opened().add(issue);
+            versions.get(fix).fixed().add(issue);
         }
     }
 
-    private List<LocalDate> getVersionsFromJsonArray(JSONArray array) {
-        List<LocalDate> versions = new ArrayList<>();
-        for (int i = 0; i < array.length(); i++) {
-            JSONObject o = array.getJSONObject(i);
-            if (!o.has(JiraVersion.RELEASE_DATE_FIELD)) continue;
-            String dateString = o.getString(JiraVersion.RELEASE_DATE_FIELD);
-            LocalDate date = LocalDate.parse(dateString);
-            versions.add(date);
-        }
-        return versions;
-    }
-
-
-    private List<Pair<JiraVersion, Integer>> getVersions(JiraIssue issue, List<JiraVersion> versions) {
-        Pair<JiraVersion, Integer> injected = null;
-        Pair<JiraVersion, Integer> opening = null;
-        Pair<JiraVersion, Integer> fix = null;
-
-        for (int i = 0; i < versions.size(); i++) {
-            JiraVersion version = versions.get(i);
-            // Injected version is the first affected version, if present
-            if (injected == null && !issue.getAffectedVersionsDates().isEmpty() && issue.getAffectedVersionsDates().get(0).isEqual(version.releaseDate()))
-                injected = new Pair<>(version, i);
-            // Opening version is set as the first release after the jira ticket was created
-            if (opening == null && version.releaseDate().isAfter(issue.getCreated())) opening = new Pair<>(version, i);
-            // Fix version is set as the first release after the jira ticket was set as resolved
-            if (fix == null && !version.releaseDate().isBefore(issue.getResolution()))
-                fix = new Pair<>(version, i);
-            // All variables are set, it is not necessary to search the whole list
-            if (injected != null && opening != null && fix != null) break;
-        }
+    // Indexes of the injected, opening and fix versions (-1 if not found)
+    private int[] getVersions(JiraIssue issue, JiraReleaseTimeline timeline) {
+        // Injected version is the first affected version, if present
+        int injected = issue.getAffectedVersionsDates().isEmpty() ? -1 : timeline.releasedOn(issue.getAffectedVersionsDates().get(0));
+        // Opening version is set as the first release after the jira ticket was created
+        int opening = timeline.firstAfter(issue.getCreated());
+        // Fix version is set as the first release after the jira ticket was set as resolved
+        int fix = timeline.firstNotBefore(issue.getResolution());
+        return new int[]{injected, opening, fix};
+    }
 
-        return Arrays.asList(injected, opening, fix);
+    // keys: keys of every issue of the page, also the skipped ones
+    private record Page(List<JiraIssue> issues, List<String> keys, int total, int maxResults) {
     }
 }
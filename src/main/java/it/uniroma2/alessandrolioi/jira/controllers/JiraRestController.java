@@ -1,22 +1,204 @@
 package it.uniroma2.alessandrolioi.jira.controllers;
 
+import it.uniroma2.alessandrolioi.common.CachePaths;
+import it.uniroma2.alessandrolioi.common.Config;
 import it.uniroma2.alessandrolioi.jira.exceptions.JiraRestException;
+import it.uniroma2.alessandrolioi.jira.models.JiraResponseCache;
+import it.uniroma2.alessandrolioi.jira.models.JiraRestStats;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 public class JiraRestController {
+    static final Logger logger = Logger.getLogger("JiraRest");
+
+    // Shared by every request, so that connections are reused (HTTP/2 when the server supports it)
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    // Responses saved by previous runs (null if the cache is disabled)
+    private static final JiraResponseCache CACHE = Config.jiraCache() ? new JiraResponseCache(CachePaths.jira()) : null;
+    private static final RateLimiter LIMITER = new RateLimiter(Config.jiraRequestsPerSecond());
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    // Backoff after a failed attempt: doubled every time, up to the maximum
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final LongAdder REQUESTS = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+    private static final LongAdder BYTES = new LongAdder();
+    private static final LongAdder LATENCY = new LongAdder();
+
     public String getJsonFromUrl(String url) throws JiraRestException {
-        try (InputStream stream = URI.create(url).toURL().openStream()) {
-            byte[] bytes = stream.readAllBytes();
-            return new String(bytes, StandardCharsets.UTF_8);
-        } catch (MalformedURLException e) {
+        JiraResponseCache.Entry cached = cachedResponse(url);
+        // Offline: only the cached responses are used, even if expired
+        if (cached != null && (Config.jiraOffline() || cached.isFresh(Duration.ofSeconds(Config.jiraCacheTtl()))))
+            return cached.body();
+        if (Config.jiraOffline())
+            throw new JiraRestException("No cached response (offline mode): %s".formatted(url), null);
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(TIMEOUT)
+                    .header("Accept", "application/json")
+                    .header("Accept-Encoding", "gzip")
+                    .GET();
+            // Expired response: the server sends the body only if it changed
+            if (cached != null && cached.etag() != null) builder.header("If-None-Match", cached.etag());
+            if (cached != null && cached.lastModified() != null) builder.header("If-Modified-Since", cached.lastModified());
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
             throw new JiraRestException("Incorrect url: %s".formatted(url), e);
+        }
+        int attempts = Config.jiraRetries() + 1;
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            long delay;
+            String failure;
+            try {
+                LIMITER.acquire();
+                long start = System.nanoTime();
+                HttpResponse<InputStream> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                byte[] body = readBody(response);
+                record(System.nanoTime() - start, body.length);
+                int status = response.statusCode();
+                if (status == 304 && cached != null) {
+                    revalidated(cached);
+                    return cached.body();
+                }
+                if (status / 100 == 2) {
+                    String json = new String(body, StandardCharsets.UTF_8);
+                    save(url, json, response);
+                    return json;
+                }
+                // Too many requests or server error: the request can be sent again
+                boolean transientFailure = status == 429 || status / 100 == 5;
+                if (!transientFailure || attempt == attempts)
+                    throw new JiraRestException("Could not load page (status %d): %s".formatted(status, url), null);
+                delay = retryAfter(response).orElse(backoff);
+                failure = "status %d".formatted(status);
+            } catch (IOException e) {
+                if (attempt == attempts)
+                    throw new JiraRestException("Could not load page: %s".formatted(url), e);
+                delay = backoff;
+                failure = e.toString();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JiraRestException("Interrupted while loading page: %s".formatted(url), e);
+            }
+            waitBeforeRetry(delay, url, failure);
+            backoff = Math.min(delay * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    // Counters since the start of the run, shared by every project
+    public static JiraRestStats stats() {
+        return new JiraRestStats(REQUESTS.sum(), RETRIES.sum(), BYTES.sum(), LATENCY.sum());
+    }
+
+    private JiraResponseCache.Entry cachedResponse(String url) {
+        if (CACHE == null) return null;
+        try {
+            return CACHE.get(url);
+        } catch (IOException | RuntimeException e) {
+            // A broken entry is loaded again from the server
+            if (logger.isLoggable(Level.WARNING))
+                logger.warning("Could not read cached response of %s: %s".formatted(url, e));
+            return null;
+        }
+    }
+
+    private void save(String url, String json, HttpResponse<?> response) {
+        if (CACHE == null) return;
+        try {
+            CACHE.put(url, json, response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+        } catch (IOException e) {
+            if (logger.isLoggable(Level.WARNING))
+                logger.warning("Could not cache response of %s: %s".formatted(url, e));
+        }
+    }
+
+    private void revalidated(JiraResponseCache.Entry cached) {
+        try {
+            CACHE.touch(cached);
         } catch (IOException e) {
-            throw new JiraRestException("Could not load page: %s".formatted(url), e);
+            if (logger.isLoggable(Level.WARNING))
+                logger.warning("Could not update cached response of %s: %s".formatted(cached.url(), e));
+        }
+    }
+
+    // The body is decompressed if the server used gzip
+    private byte[] readBody(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+        try (InputStream stream = gzip ? new GZIPInputStream(response.body()) : response.body()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private void record(long nanos, int length) {
+        REQUESTS.increment();
+        LATENCY.add(nanos);
+        BYTES.add(length);
+        if (logger.isLoggable(Level.FINE))
+            logger.fine("Loaded %d bytes in %d ms".formatted(length, nanos / 1_000_000));
+    }
+
+    private void waitBeforeRetry(long millis, String url, String failure) throws JiraRestException {
+        RETRIES.increment();
+        if (logger.isLoggable(Level.WARNING))
+            logger.warning("Request failed (%s), retrying in %d ms: %s".formatted(failure, millis, url));
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JiraRestException("Interrupted while loading page: %s".formatted(url), e);
+        }
+    }
+
+    // Delay requested by the server (only the number of seconds form is supported)
+    private Optional<Long> retryAfter(HttpResponse<?> response) {
+        try {
+            return response.headers().firstValue("Retry-After")
+                    .map(value -> Math.min(Long.parseLong(value.trim()) * 1000, MAX_BACKOFF_MILLIS));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Requests are spaced by at least 1/rate seconds (no limit if the rate is not positive)
+    private static final class RateLimiter {
+        private final long intervalNanos;
+        private long next;
+
+        private RateLimiter(double rate) {
+            this.intervalNanos = rate > 0 ? (long) (1e9 / rate) : 0;
+            this.next = System.nanoTime();
+        }
+
+        private void acquire() throws InterruptedException {
+            if (intervalNanos == 0) return;
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(next, now);
+                next = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
         }
     }
 }
@@ -1,5 +1,6 @@
 package it.uniroma2.alessandrolioi.jira.controllers;
 
+import it.uniroma2.alessandrolioi.common.Config;
 import it.uniroma2.alessandrolioi.jira.exceptions.JiraRestException;
 import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
 import org.json.JSONArray;
@@ -13,7 +14,7 @@ import java.util.List;
 public class JiraVersionController {
     public List<JiraVersion> loadVersions(String project) throws JiraRestException {
         List<JiraVersion> versions = new ArrayList<>();
-        String url = "https://issues.apache.org/jira/rest/api/2/project/%s/versions".formatted(project.toUpperCase());
+        String url = "%s/rest/api/2/project/%s/versions".formatted(Config.jiraUrl(), project.toUpperCase());
         JiraRestController rest = new JiraRestController();
         String json = rest.getJsonFromUrl(url);
         JSONArray jsonVersions = new JSONArray(json);
@@ -10,6 +10,8 @@ public final class JiraIssue {
     public static final String FIX_VERSIONS_FIELD = "fixVersions";
     public static final String RESOLUTION_DATE_FIELD = "resolutiondate";
     public static final String CREATED_FIELD = "created";
+    // Not loaded with the issues: only used to detect changes of the issues (see JiraColdStartController)
+    public static final String UPDATED_FIELD = "updated";
     private static final String[] FIELDS = {KEY_FIELD, VERSIONS_FIELD, FIX_VERSIONS_FIELD, RESOLUTION_DATE_FIELD, CREATED_FIELD};
 
     private final String key;
@@ -69,6 +71,10 @@ public final class JiraIssue {
         this.ivIndex = ivIndex;
     }
 
+    public int getOvIndex() {
+        return ovIndex;
+    }
+
     public void setOvIndex(int ovIndex) {
         this.ovIndex = ovIndex;
     }
@@ -0,0 +1,5 @@
+package it.uniroma2.alessandrolioi.jira.models;
+
+// Issues of a query without loading them: their number and the last time one of them was updated (empty if unknown)
+public record JiraIssueSummary(int total, String lastUpdated) {
+}
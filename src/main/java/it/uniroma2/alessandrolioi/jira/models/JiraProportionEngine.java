@@ -0,0 +1,101 @@
+package it.uniroma2.alessandrolioi.jira.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Incremental Proportion, processing one release at a time
+ *   lastSum: sum of proportions from release 1 to R-1
+ *   totalIssues: issues opened from release 1 to R-1
+ * Releases appended to `versions` after the last update are processed by the next call to `update`
+ * (the IV of the tickets of the previous releases is never estimated again).
+ * Tickets added to releases already processed are handled by `append`, which processes again only the releases
+ * from the first one the tickets are opened or fixed in
+ * */
+public final class JiraProportionEngine {
+    private final List<JiraVersion> versions;
+    private final double proportionColdStart;
+    // Index of the first release not processed yet
+    private int next;
+    private double lastSum;
+    private int totalIssues;
+    // State before every processed release, with the tickets whose IV it estimated
+    private final List<Checkpoint> checkpoints;
+
+    public JiraProportionEngine(List<JiraVersion> versions, double proportionColdStart) {
+        this.versions = versions;
+        this.proportionColdStart = proportionColdStart;
+        this.next = 0;
+        this.lastSum = 0;
+        this.totalIssues = 0;
+        this.checkpoints = new ArrayList<>();
+    }
+
+    // Processes every release not processed yet
+    public void update() {
+        while (next < versions.size())
+            apply(versions.get(next++));
+    }
+
+    // Tickets classified after the last update (already added to the opened and fixed lists of their releases)
+    public void append(List<JiraIssue> issues) {
+        int first = next;
+        for (JiraIssue issue : issues) {
+            // Skipped by the classification: not part of any release
+            if (issue.getFvIndex() == -1) continue;
+            first = Math.min(first, Math.min(issue.getOvIndex(), issue.getFvIndex()));
+        }
+        rollback(first);
+        update();
+    }
+
+    // Restores the state before `release`: the IVs estimated from that release on are dropped
+    private void rollback(int release) {
+        while (next > release) {
+            Checkpoint checkpoint = checkpoints.remove(--next);
+            for (JiraIssue issue : checkpoint.estimated()) {
+                versions.get(issue.getIvIndex()).injected().remove(issue);
+                issue.setIvIndex(-1);
+            }
+            lastSum = checkpoint.lastSum();
+            totalIssues = checkpoint.totalIssues();
+        }
+    }
+
+    private void apply(JiraVersion version) {
+        Checkpoint checkpoint = new Checkpoint(lastSum, totalIssues, new ArrayList<>());
+        checkpoints.add(checkpoint);
+        List<JiraIssue> fixed = version.fixed();
+        // Issues used to calculate proportion (the ones with a valid IV)
+        int valid = 0;
+        double currentSum = 0;
+        for (JiraIssue issue : fixed) {
+            if (issue.getIvIndex() == -1) continue;
+            currentSum += issue.calculateProportion();
+            valid++;
+        }
+        double proportion = proportionColdStart; // use coldStart if there are less than 5 issues
+        if (valid >= 5) {
+            // (lastSum + currentSum): sum of proportions from release 1 to R; divided by the number of issues: proportion mean
+            proportion = (lastSum + currentSum) / (totalIssues + valid);
+            lastSum += currentSum;
+        }
+        // Issues fixed in this release without IV (the estimated ones are not considered again: they are set only in this loop)
+        for (JiraIssue issue : fixed) {
+            if (issue.getIvIndex() != -1) continue;
+            // Calculate IV = FV - (FV - OV) * P
+            int iv = (int) (issue.getFvIndex() - issue.getFvMinusOv() * proportion);
+            // Save IV
+            issue.setIvIndex(iv);
+            // Add current issue to the list of proportions
+            lastSum += issue.calculateProportion();
+            // Labeling: add issue to version corresponding to IV
+            versions.get(iv).injected().add(issue);
+            checkpoint.estimated().add(issue);
+        }
+        totalIssues += version.opened().size();
+    }
+
+    private record Checkpoint(double lastSum, int totalIssues, List<JiraIssue> estimated) {
+    }
+}
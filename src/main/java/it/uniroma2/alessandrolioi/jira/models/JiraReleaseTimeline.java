@@ -0,0 +1,45 @@
+package it.uniroma2.alessandrolioi.jira.models;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Release dates of the versions (sorted by release date), searched with binary searches
+public final class JiraReleaseTimeline {
+    private final long[] days;
+
+    public JiraReleaseTimeline(List<JiraVersion> versions) {
+        this.days = new long[versions.size()];
+        for (int i = 0; i < versions.size(); i++)
+            days[i] = versions.get(i).releaseDate().toEpochDay();
+    }
+
+    // Index of the first version released on `date`, or -1 if there is none
+    public int releasedOn(LocalDate date) {
+        int index = lowerBound(date.toEpochDay());
+        return index < days.length && days[index] == date.toEpochDay() ? index : -1;
+    }
+
+    // Index of the first version released after `date`, or -1 if there is none
+    public int firstAfter(LocalDate date) {
+        int index = lowerBound(date.toEpochDay() + 1);
+        return index < days.length ? index : -1;
+    }
+
+    // Index of the first version released on or after `date`, or -1 if there is none
+    public int firstNotBefore(LocalDate date) {
+        int index = lowerBound(date.toEpochDay());
+        return index < days.length ? index : -1;
+    }
+
+    // Index of the first day not less than `day`
+    private int lowerBound(long day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,125 @@
+package it.uniroma2.alessandrolioi.jira.models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Properties;
+
+// Responses of Jira saved on disk: every URL is stored in `<sha256 of the normalized URL>.json`, with its validators in `.meta`.
+// The body is written first and the meta last, with the length and the checksum of the body: an entry is used only if they match,
+// so a body without its meta (i.e. interrupted between the two moves, or replaced by a concurrent writer) is loaded again
+public final class JiraResponseCache {
+    private static final String URL = "url";
+    private static final String LENGTH = "length";
+    private static final String CHECKSUM = "sha256";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String FETCHED_AT = "fetchedAt";
+
+    private final Path folder;
+
+    public JiraResponseCache(Path folder) {
+        this.folder = folder;
+    }
+
+    // Returns the cached response of `url`, or null if it was never saved (or its body does not match its meta)
+    public Entry get(String url) throws IOException {
+        String key = keyOf(url);
+        Path body = folder.resolve(key + ".json");
+        Path meta = folder.resolve(key + ".meta");
+        if (!Files.exists(body) || !Files.exists(meta)) return null;
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(meta)) {
+            properties.load(input);
+        }
+        byte[] contents = Files.readAllBytes(body);
+        // Entries saved without length and checksum (by previous versions) are loaded again as well
+        if (!String.valueOf(contents.length).equals(properties.getProperty(LENGTH))
+                || !checksumOf(contents).equals(properties.getProperty(CHECKSUM)))
+            return null;
+        return new Entry(url, new String(contents, StandardCharsets.UTF_8),
+                properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED),
+                Instant.ofEpochMilli(Long.parseLong(properties.getProperty(FETCHED_AT, "0"))));
+    }
+
+    public void put(String url, String body, String etag, String lastModified) throws IOException {
+        String key = keyOf(url);
+        Files.createDirectories(folder);
+        byte[] contents = body.getBytes(StandardCharsets.UTF_8);
+        write(folder.resolve(key + ".json"), contents);
+        // Last, so the entry is complete only once the meta describes the body
+        writeMeta(key, url, contents, etag, lastModified);
+    }
+
+    // The server confirmed that the cached response is still valid (304): only the fetch time is updated
+    public void touch(Entry entry) throws IOException {
+        writeMeta(keyOf(entry.url()), entry.url(), entry.body().getBytes(StandardCharsets.UTF_8), entry.etag(), entry.lastModified());
+    }
+
+    private void writeMeta(String key, String url, byte[] body, String etag, String lastModified) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(URL, url);
+        properties.setProperty(LENGTH, String.valueOf(body.length));
+        properties.setProperty(CHECKSUM, checksumOf(body));
+        if (etag != null) properties.setProperty(ETAG, etag);
+        if (lastModified != null) properties.setProperty(LAST_MODIFIED, lastModified);
+        properties.setProperty(FETCHED_AT, String.valueOf(Instant.now().toEpochMilli()));
+        Path temporary = Files.createTempFile(folder, key, ".tmp");
+        try (OutputStream output = Files.newOutputStream(temporary)) {
+            properties.store(output, null);
+        }
+        Files.move(temporary, folder.resolve(key + ".meta"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Written in a temporary file and then moved, so that a concurrent reader never sees a partial file
+    private void write(Path file, byte[] contents) throws IOException {
+        Path temporary = Files.createTempFile(folder, file.getFileName().toString(), ".tmp");
+        Files.write(temporary, contents);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String keyOf(String url) {
+        return checksumOf(normalize(url).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String checksumOf(byte[] contents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(contents));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Lower case scheme and host, and query parameters in alphabetical order
+    private String normalize(String url) {
+        URI uri = URI.create(url).normalize();
+        String query = uri.getRawQuery();
+        String sorted = "";
+        if (query != null) {
+            String[] parameters = query.split("&");
+            Arrays.sort(parameters);
+            sorted = "?" + String.join("&", parameters);
+        }
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase();
+        String authority = uri.getRawAuthority() == null ? "" : uri.getRawAuthority().toLowerCase();
+        return scheme + "://" + authority + uri.getRawPath() + sorted;
+    }
+
+    public record Entry(String url, String body, String etag, String lastModified, Instant fetchedAt) {
+        public boolean isFresh(Duration ttl) {
+            return fetchedAt.plus(ttl).isAfter(Instant.now());
+        }
+    }
+}
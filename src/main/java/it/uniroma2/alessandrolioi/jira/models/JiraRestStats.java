@@ -0,0 +1,8 @@
+package it.uniroma2.alessandrolioi.jira.models;
+
+// Counters of the requests sent to Jira (latency is the sum of the latencies of every attempt)
+public record JiraRestStats(long requests, long retries, long bytes, long latencyNanos) {
+    public double averageLatencyMillis() {
+        return requests == 0 ? 0 : latencyNanos / 1e6 / requests;
+    }
+}
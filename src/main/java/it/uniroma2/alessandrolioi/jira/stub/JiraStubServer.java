@@ -0,0 +1,286 @@
+package it.uniroma2.alessandrolioi.jira.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraResponseCache;
+import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+// Local stand-in for the two REST endpoints of Jira used by the project (versions of a project and search of issues)
+// Synthetic data is deterministic: the same request always gets the same response
+public class JiraStubServer {
+    static final Logger logger = Logger.getLogger("JiraStub");
+
+    private static final String API = "/rest/api/2";
+    private static final Pattern VERSIONS = Pattern.compile(API + "/project/([^/]+)/versions");
+    private static final Pattern PROJECT = Pattern.compile("project=(\\w+)");
+    private static final Pattern RESOLVED = Pattern.compile("resolved>=(\\d{4}-\\d{2}-\\d{2}) AND resolved<=(\\d{4}-\\d{2}-\\d{2})");
+    private static final LocalDate BASE = LocalDate.of(2010, 1, 1);
+    // Days between two versions
+    private static final int RELEASE_INTERVAL = 45;
+    private static final String TIME = "T10:00:00.000+0000";
+
+    private final JiraStubSettings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final JiraResponseCache recorded;
+    // Issue numbers (in descending order) of every project matching a query, by query
+    private final Map<String, List<Matches>> queries;
+    private final LongAdder requests;
+    private final LongAdder errors;
+
+    public JiraStubServer(JiraStubSettings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", settings.port()), 0);
+        this.executor = Executors.newFixedThreadPool(settings.threads());
+        this.recorded = settings.recorded() != null ? new JiraResponseCache(settings.recorded()) : null;
+        this.queries = new ConcurrentHashMap<>();
+        this.requests = new LongAdder();
+        this.errors = new LongAdder();
+        server.setExecutor(executor);
+        server.createContext(API, this::handle);
+    }
+
+    public void start() {
+        server.start();
+        if (logger.isLoggable(Level.INFO))
+            logger.info("Jira stub listening on %s".formatted(url()));
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        if (logger.isLoggable(Level.INFO))
+            logger.info("Jira stub stopped: %d requests, %d injected errors".formatted(requests.sum(), errors.sum()));
+    }
+
+    // Base URL to use as `jira.url`
+    public String url() {
+        return "http://localhost:%d".formatted(server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            if (settings.latencyMillis() > 0) Thread.sleep(settings.latencyMillis());
+            if (settings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+                errors.increment();
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            String body = respond(exchange.getRequestURI().getRawPath(), exchange.getRequestURI().getRawQuery());
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            send(exchange, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            if (logger.isLoggable(Level.WARNING))
+                logger.warning("Could not answer %s: %s".formatted(exchange.getRequestURI(), e));
+            exchange.sendResponseHeaders(500, -1);
+        }
+    }
+
+    // Returns null if the endpoint is not supported
+    private String respond(String path, String query) throws IOException {
+        if (recorded != null) {
+            JiraResponseCache.Entry entry = recorded.get(settings.recordedUrl() + path + (query != null ? "?" + query : ""));
+            if (entry != null) return entry.body();
+        }
+        Matcher versions = VERSIONS.matcher(path);
+        if (versions.matches()) return versions(versions.group(1)).toString();
+        if (path.equals(API + "/search")) return search(parameters(query)).toString();
+        return null;
+    }
+
+    private void send(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (encoding != null && encoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private JSONArray versions(String project) {
+        JSONArray versions = new JSONArray();
+        for (int i = 0; i < settings.versionsPerProject(); i++) {
+            JSONObject version = new JSONObject();
+            version.put(JiraVersion.NAME_FIELD, versionName(i));
+            version.put(JiraVersion.RELEASE_DATE_FIELD, releaseDate(i).toString());
+            version.put(JiraVersion.RELEASED_FIELD, true);
+            versions.put(version);
+        }
+        // Next version of the project (not released yet)
+        JSONObject next = new JSONObject();
+        next.put(JiraVersion.NAME_FIELD, versionName(settings.versionsPerProject()));
+        next.put(JiraVersion.RELEASED_FIELD, false);
+        versions.put(next);
+        return versions;
+    }
+
+    private JSONObject search(Map<String, String> parameters) {
+        String jql = parameters.getOrDefault("jql", "");
+        int startAt = Integer.parseInt(parameters.getOrDefault("startAt", "0"));
+        int maxResults = Math.min(Integer.parseInt(parameters.getOrDefault("maxResults", "50")), settings.pageSize());
+        List<Matches> matches = queries.computeIfAbsent(jql, this::matches);
+        int total = matches.stream().mapToInt(m -> m.numbers().length).sum();
+
+        JSONArray issues = new JSONArray();
+        // Issues are ordered by key (descending): skip the projects before `startAt`
+        int offset = startAt;
+        for (Matches match : matches) {
+            if (issues.length() == maxResults) break;
+            if (offset >= match.numbers().length) {
+                offset -= match.numbers().length;
+                continue;
+            }
+            for (int i = offset; i < match.numbers().length && issues.length() < maxResults; i++)
+                issues.put(issue(match.project(), match.numbers()[i]));
+            offset = 0;
+        }
+        JSONObject result = new JSONObject();
+        result.put("startAt", startAt);
+        result.put("maxResults", maxResults);
+        result.put("total", total);
+        result.put("issues", issues);
+        return result;
+    }
+
+    // Issues of every project of the query resolved in its range (by project key and number, in descending order)
+    // Dates of the query are at midnight (as in Jira), while issues are resolved at 10:00: `resolved<=D` excludes the issues of D
+    private List<Matches> matches(String jql) {
+        List<String> projects = new ArrayList<>();
+        Matcher project = PROJECT.matcher(jql);
+        while (project.find()) projects.add(project.group(1).toUpperCase());
+        List<LocalDate[]> ranges = new ArrayList<>();
+        Matcher resolved = RESOLVED.matcher(jql);
+        while (resolved.find()) ranges.add(new LocalDate[]{LocalDate.parse(resolved.group(1)), LocalDate.parse(resolved.group(2))});
+
+        List<Matches> matches = new ArrayList<>();
+        for (int p = 0; p < projects.size(); p++) {
+            LocalDate[] range = p < ranges.size() ? ranges.get(p) : null;
+            int[] numbers = new int[settings.issuesPerProject()];
+            int count = 0;
+            for (int n = settings.issuesPerProject(); n >= 1; n--) {
+                LocalDate resolution = resolution(projects.get(p), n);
+                if (range == null || (!resolution.isBefore(range[0]) && resolution.isBefore(range[1])))
+                    numbers[count++] = n;
+            }
+            matches.add(new Matches(projects.get(p), Arrays.copyOf(numbers, count)));
+        }
+        matches.sort(Comparator.comparing(Matches::project).reversed());
+        return matches;
+    }
+
+    private JSONObject issue(String project, int number) {
+        LocalDate created = created(project, number);
+        LocalDate resolution = resolution(project, number);
+        long hash = hash(project, number);
+        JSONObject fields = new JSONObject();
+        fields.put(JiraIssue.CREATED_FIELD, created + TIME);
+        fields.put(JiraIssue.RESOLUTION_DATE_FIELD, resolution + TIME);
+        // Fix version: first version released after the resolution
+        JSONArray fixVersions = new JSONArray();
+        int fix = firstVersionNotBefore(resolution);
+        if (fix != -1) fixVersions.put(versionJson(fix));
+        // Affected version (60% of the issues): one of the versions up to the opening one
+        JSONArray affected = new JSONArray();
+        int opening = firstVersionNotBefore(created.plusDays(1));
+        if (opening != -1 && Math.floorMod(hash >>> 40, 10) < 6)
+            affected.put(versionJson(Math.floorMod(hash >>> 44, opening + 1)));
+        fields.put(JiraIssue.FIX_VERSIONS_FIELD, fixVersions);
+        fields.put(JiraIssue.VERSIONS_FIELD, affected);
+
+        JSONObject issue = new JSONObject();
+        issue.put(JiraIssue.KEY_FIELD, "%s-%d".formatted(project, number));
+        issue.put("fields", fields);
+        return issue;
+    }
+
+    private JSONObject versionJson(int index) {
+        JSONObject version = new JSONObject();
+        version.put(JiraVersion.NAME_FIELD, versionName(index));
+        version.put(JiraVersion.RELEASE_DATE_FIELD, releaseDate(index).toString());
+        return version;
+    }
+
+    private LocalDate created(String project, int number) {
+        long days = (long) settings.versionsPerProject() * RELEASE_INTERVAL;
+        return BASE.plusDays(Math.floorMod(hash(project, number), days));
+    }
+
+    private LocalDate resolution(String project, int number) {
+        return created(project, number).plusDays(Math.floorMod(hash(project, number) >>> 20, 120));
+    }
+
+    private int firstVersionNotBefore(LocalDate date) {
+        long days = date.toEpochDay() - BASE.toEpochDay();
+        int index = (int) Math.max(0, (days + RELEASE_INTERVAL - 1) / RELEASE_INTERVAL - 1);
+        while (index < settings.versionsPerProject() && releaseDate(index).isBefore(date)) index++;
+        return index < settings.versionsPerProject() ? index : -1;
+    }
+
+    private LocalDate releaseDate(int index) {
+        return BASE.plusDays((long) (index + 1) * RELEASE_INTERVAL);
+    }
+
+    private String versionName(int index) {
+        return "%d.%d.0".formatted(index / 10 + 1, index % 10);
+    }
+
+    // Deterministic pseudo-random value of an issue (SplitMix64 finalizer)
+    private long hash(String project, int number) {
+        long z = project.hashCode() * 0x9E3779B97F4A7C15L + number;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) return parameters;
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator == -1) continue;
+            parameters.put(parameter.substring(0, separator), URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private record Matches(String project, int[] numbers) {
+    }
+}
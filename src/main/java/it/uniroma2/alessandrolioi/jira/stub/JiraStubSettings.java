@@ -0,0 +1,16 @@
+package it.uniroma2.alessandrolioi.jira.stub;
+
+import java.nio.file.Path;
+
+/*
+ * Behaviour of the JiraStubServer
+ *   latencyMillis: delay added to every response
+ *   pageSize: maximum number of issues of a search page (Jira uses a smaller page size than the requested one)
+ *   errorRate: probability of answering with 503 (in [0, 1])
+ *   issuesPerProject, versionsPerProject: volume of the synthetic data
+ *   recorded: folder of a JiraResponseCache whose responses are served instead of the synthetic ones (can be null)
+ *   recordedUrl: base URL of the recorded responses
+ * */
+public record JiraStubSettings(int port, int threads, long latencyMillis, int pageSize, double errorRate,
+                               int issuesPerProject, int versionsPerProject, Path recorded, String recordedUrl) {
+}
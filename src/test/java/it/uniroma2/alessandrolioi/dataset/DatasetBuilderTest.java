@@ -0,0 +1,110 @@
+package it.uniroma2.alessandrolioi.dataset;
+
+import it.uniroma2.alessandrolioi.common.DatasetPaths;
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.fixtures.FixtureJira;
+import it.uniroma2.alessandrolioi.fixtures.FixtureRepository;
+import it.uniroma2.alessandrolioi.git.Git;
+import it.uniroma2.alessandrolioi.integration.JiraGitIntegration;
+import it.uniroma2.alessandrolioi.jira.Jira;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Datasets of the fixture repository and tickets against the ones written by the scanning implementation
+// (before user-024 and user-025), stored in the `golden` resources
+class DatasetBuilderTest {
+    private static final List<String> NAMES = List.of("2", "3", "4", "5", "6", "7", "8", "oracle");
+    // Metrics of the commits of a class in a release: they include the commits of the branch merged with `-s ours` (see GitPathIndexTest)
+    private static final Set<String> COMMIT_METRICS = Set.of("AVERAGE_LOC_ADDED", "MAX_LOC_ADDED", "AVERAGE_CHURN", "MAX_CHURN", "NR", "N_AUTH", "N_FIX");
+
+    @TempDir
+    static Path folder;
+    private static FixtureRepository fixture;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        fixture = FixtureRepository.create(folder);
+    }
+
+    // Same steps of DatasetGeneratorApp, with the metrics computed by `parallelism` threads
+    private static Map<String, String> generate(int parallelism) throws Exception {
+        String previous = System.getProperty("metric.parallelism");
+        System.setProperty("metric.parallelism", String.valueOf(parallelism));
+        Git git = new Git(folder.toString());
+        try {
+            Jira jira = new Jira(FixtureJira.versions(fixture), FixtureJira.issues(fixture));
+            jira.applyProportion(FixtureJira.COLD_START);
+            JiraGitIntegration integration = new JiraGitIntegration(git);
+            integration.findRevisions(jira.getVersions());
+            git.loadClassesOfRevisions(integration.versions().stream().map(Pair::second).toList());
+
+            DatasetBuilder dataset = new DatasetBuilder(integration, git);
+            dataset.applyMetrics();
+            for (int i = 2; i <= jira.getVersions().size(); i++) {
+                dataset.setBuggy(i);
+                dataset.writeToFile(FixtureRepository.PROJECT, i);
+            }
+            dataset.writeOracle(FixtureRepository.PROJECT, jira.getVersions().size());
+        } finally {
+            git.close();
+            if (previous == null) System.clearProperty("metric.parallelism");
+            else System.setProperty("metric.parallelism", previous);
+        }
+
+        Path datasets = DatasetPaths.fromProject(FixtureRepository.PROJECT).resolve("datasets");
+        Map<String, String> written = new LinkedHashMap<>();
+        for (String name : NAMES)
+            written.put(name, Files.readString(datasets.resolve("%s.csv".formatted(name))));
+        return written;
+    }
+
+    private static String golden(String name) throws IOException {
+        try (InputStream stream = DatasetBuilderTest.class.getResourceAsStream("/golden/%s/%s.csv".formatted(FixtureRepository.PROJECT, name))) {
+            assertNotNull(stream, name);
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void sameDatasetsAsTheScanningImplementation() throws Exception {
+        Map<String, String> written = generate(1);
+        int divergent = 0;
+        for (String name : NAMES) {
+            String[] expected = golden(name).split("\n");
+            String[] actual = written.get(name).split("\n");
+            assertEquals(expected.length, actual.length, name);
+            assertEquals(expected[0], actual[0], name);
+            List<String> header = List.of(expected[0].split(","));
+            for (int row = 1; row < expected.length; row++) {
+                if (expected[row].equals(actual[row])) continue;
+
+                // Known divergence: only the commit metrics of the class changed (and discarded) by the merged branch
+                String[] expectedValues = expected[row].split(",");
+                String[] actualValues = actual[row].split(",");
+                assertEquals(fixture.discardedClass(), expectedValues[1], "%s: %s".formatted(name, expected[row]));
+                for (int column = 0; column < header.size(); column++) {
+                    if (!COMMIT_METRICS.contains(header.get(column)))
+                        assertEquals(expectedValues[column], actualValues[column], "%s: %s %s".formatted(name, header.get(column), expected[row]));
+                }
+                divergent++;
+            }
+        }
+        // Releases 2 and 5 (the only ones whose range contains the merge) of every dataset including them
+        assertEquals(2 * 5 + 3, divergent);
+    }
+
+    @Test
+    void sameDatasetsWithEveryParallelism() throws Exception {
+        assertEquals(generate(1), generate(8));
+    }
+}
@@ -0,0 +1,53 @@
+package it.uniroma2.alessandrolioi.fixtures;
+
+import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Jira versions and tickets of the fixture repository (fixed seed: the same at every run).
+// Versions are the releases of the repository; tickets are the issue keys of its messages, plus a few without commits
+public final class FixtureJira {
+    // Proportion used instead of the median of the cold start projects
+    public static final double COLD_START = 0.8;
+    // Tickets without a commit mentioning them (their revision is found by date)
+    private static final int WITHOUT_COMMITS = 5;
+
+    private FixtureJira() {
+    }
+
+    public static List<JiraVersion> versions(FixtureRepository fixture) {
+        List<JiraVersion> versions = new ArrayList<>();
+        for (FixtureRepository.Release release : fixture.releases())
+            versions.add(new JiraVersion(release.name(), release.date()));
+        return versions;
+    }
+
+    // Tickets sorted by key, as loaded from Jira
+    public static List<JiraIssue> issues(FixtureRepository fixture) {
+        Random random = new Random(7);
+        List<LocalDate> dates = fixture.releases().stream().map(FixtureRepository.Release::date).toList();
+        LocalDate first = dates.get(0);
+        LocalDate last = dates.get(dates.size() - 1);
+        int span = (int) (last.toEpochDay() - first.toEpochDay());
+        List<JiraIssue> issues = new ArrayList<>();
+        for (int key = 1; key <= fixture.keys() + WITHOUT_COMMITS; key++) {
+            // Some tickets are created before the first release; every ticket is opened and fixed by the last one
+            LocalDate created = first.plusDays(random.nextInt(span + 20) - 20L);
+            LocalDate resolution = created.plusDays(random.nextInt(60));
+            if (resolution.isAfter(last)) resolution = last;
+            int opening = 0;
+            while (!dates.get(opening).isAfter(created)) opening++;
+            List<LocalDate> affected = new ArrayList<>();
+            // Affected version up to two releases before the opening one
+            if (random.nextInt(2) == 0) affected.add(dates.get(Math.max(0, opening - random.nextInt(3))));
+            // Affected version after the fix (wrong on Jira)
+            if (random.nextInt(15) == 0) affected.add(0, last.plusDays(10));
+            issues.add(new JiraIssue("%s-%d".formatted(FixtureRepository.PROJECT, key), resolution, created, affected));
+        }
+        return issues;
+    }
+}
@@ -0,0 +1,337 @@
+package it.uniroma2.alessandrolioi.fixtures;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Small repository (~130 commits) with the shapes met in the analyzed projects: releases named in the commit messages,
+// issue keys, a merged branch, a merge discarding its branch (`-s ours`) and a branch never merged.
+// Objects are written directly (no working tree) with fixed dates and seed: the commit ids are the same at every run
+public final class FixtureRepository {
+    public static final String PROJECT = "FIX";
+    // Commit messages of the releases (the name of the release is the second element)
+    private static final String[][] RELEASES = {
+            {"Tag fix 1.0 release", "1.0"},
+            {"Tagging 1.1", "1.1"},
+            {"BookKeeper 1.2 release", "1.2"},
+            {"Tagged release 1.3 (rc2)", "1.3"},
+            {"Preparing 1.4 release", "1.4"},
+            {"Tag 1.10", "1.10"},
+            {"[maven-release-plugin] Tag fix-2.0", "2.0"},
+            {"Tagging 2.1 release candidate", "2.1"},
+    };
+    private static final Instant START = Instant.parse("2017-07-14T10:00:00Z");
+    private static final String[] AUTHORS = {"Alice Rossi", "Bruno Bianchi", "Carla Verdi", "Dario Neri"};
+    private static final ZoneId[] ZONES = {ZoneOffset.UTC, ZoneOffset.ofHours(2), ZoneOffset.ofHours(-5)};
+    private static final String[] WORDS = {"cache", "index", "parse", "merge", "release", "commit", "metric", "proportion"};
+
+    private final Repository repository;
+    private final ObjectInserter inserter;
+    private final Random random;
+    private final List<Release> releases;
+    // Paths only the current side branch may touch (the merges never conflict)
+    private final Set<String> reserved;
+    // Path of the class modified by the branch discarded by its merge
+    private String discarded;
+    private Instant time;
+    private int nextKey;
+    private int nextClass;
+
+    // A tagged release: name, date of the release commit and message
+    public record Release(String name, LocalDate date, String message) {
+    }
+
+    private static final class Branch {
+        private final String ref;
+        private final TreeMap<String, String> files;
+        // Paths when the branch was forked
+        private final Set<String> base;
+        private ObjectId head;
+
+        private Branch(String ref, TreeMap<String, String> files, ObjectId head) {
+            this.ref = ref;
+            this.files = files;
+            this.base = new HashSet<>(files.keySet());
+            this.head = head;
+        }
+    }
+
+    private FixtureRepository(Repository repository) {
+        this.repository = repository;
+        this.inserter = repository.newObjectInserter();
+        this.random = new Random(42);
+        this.releases = new ArrayList<>();
+        this.reserved = new HashSet<>();
+        this.time = START;
+        this.nextKey = 1;
+    }
+
+    // Creates the repository in `folder` (as `folder/.git`)
+    public static FixtureRepository create(Path folder) throws IOException {
+        try (Repository repository = FileRepositoryBuilder.create(folder.resolve(".git").toFile())) {
+            repository.create();
+            RefUpdate head = repository.updateRef(Constants.HEAD);
+            head.disableRefLog();
+            head.link(Constants.R_HEADS + "master");
+            FixtureRepository fixture = new FixtureRepository(repository);
+            fixture.build();
+            fixture.inserter.close();
+            return fixture;
+        }
+    }
+
+    public List<Release> releases() {
+        return releases;
+    }
+
+    // Issue keys are numbered from 1 to `keys()`
+    public int keys() {
+        return nextKey - 1;
+    }
+
+    // Class modified only by the commits of the branch discarded by its merge
+    public String discardedClass() {
+        return discarded;
+    }
+
+    private void build() throws IOException {
+        Branch master = new Branch(Constants.R_HEADS + "master", new TreeMap<>(), null);
+        master.files.put("README.md", "Fixture project\n");
+        master.files.put("src/main/java/org/fixture/Empty.java", "");
+        master.files.put("src/main/java/org/fixture/Trailing.java", "class Trailing {\n}\n\n\n");
+        master.files.put("src/main/java/org/fixture/NoNewline.java", "class NoNewline {\n    int a;\n}");
+        for (int i = 0; i < 8; i++) addClass(master);
+        commit(master, "Initial import");
+
+        Branch side = null;
+        int release = 0;
+        for (int step = 1; step <= 100; step++) {
+            if (step == 20) {
+                side = fork(master, "side");
+                reserve(master, 2);
+            } else if (step > 20 && step < 30 && step % 2 == 1) {
+                change(side, true);
+                if (step == 25) addClass(side);
+                commit(side, message());
+            } else if (step == 30) {
+                merge(master, side, false);
+                reserved.clear();
+            } else if (step == 55) {
+                side = fork(master, "discarded");
+                reserve(master, 1);
+                discarded = reserved.iterator().next();
+            } else if (step > 55 && step < 60) {
+                change(side, true);
+                commit(side, message());
+            } else if (step == 60) {
+                // Merged with `-s ours`: the changes of the branch are not in the result
+                merge(master, side, true);
+                reserved.clear();
+            } else if (step == 75) {
+                side = fork(master, "stale");
+            } else if (step > 75 && step < 79) {
+                // Never merged
+                change(side, false);
+                commit(side, message());
+            }
+
+            if (step % 12 == 0 && release < RELEASES.length) {
+                master.files.put("README.md", "Fixture project %s\n".formatted(RELEASES[release][1]));
+                ObjectId id = commit(master, RELEASES[release][0]);
+                releases.add(new Release(RELEASES[release][1], LocalDate.ofInstant(time, ZoneOffset.UTC), RELEASES[release][0]));
+                tag(id, "release-" + RELEASES[release][1], release % 3 == 0);
+                release++;
+            } else {
+                if (random.nextInt(8) == 0) addClass(master);
+                if (random.nextInt(15) == 0) deleteClass(master);
+                if (random.nextInt(15) == 0) moveClass(master);
+                change(master, false);
+                commit(master, message());
+            }
+        }
+    }
+
+    private Branch fork(Branch from, String name) {
+        return new Branch(Constants.R_HEADS + name, new TreeMap<>(from.files), from.head);
+    }
+
+    // Reserves `count` classes of `branch` to the side branch
+    private void reserve(Branch branch, int count) {
+        List<String> classes = classes(branch, false);
+        for (int i = 0; i < count; i++) reserved.add(classes.get(random.nextInt(classes.size())));
+    }
+
+    // Merge commit of `side` into `target` (only the reserved paths can differ)
+    private void merge(Branch target, Branch side, boolean ours) throws IOException {
+        if (!ours) {
+            for (String path : reserved) {
+                if (side.files.containsKey(path)) target.files.put(path, side.files.get(path));
+                else target.files.remove(path);
+            }
+            // Classes added by the branch
+            for (Map.Entry<String, String> file : side.files.entrySet()) {
+                if (!side.base.contains(file.getKey())) target.files.put(file.getKey(), file.getValue());
+            }
+        }
+        commit(target, "Merge branch '%s'".formatted(side.ref.substring(Constants.R_HEADS.length())), side.head);
+    }
+
+    private List<String> classes(Branch branch, boolean reservedOnly) {
+        List<String> classes = new ArrayList<>();
+        for (String path : branch.files.keySet()) {
+            if (!path.endsWith(".java") || path.startsWith("src/main/java/org/fixture/") && path.indexOf('/', 26) == -1) continue;
+            if (reserved.contains(path) == reservedOnly) classes.add(path);
+        }
+        return classes;
+    }
+
+    private void addClass(Branch branch) {
+        int id = nextClass++;
+        String path = "src/main/java/org/fixture/module%d/Class%d.java".formatted(id % 3, id);
+        List<String> lines = new ArrayList<>();
+        lines.add("package org.fixture.module%d;".formatted(id % 3));
+        lines.add("");
+        lines.add("public class Class%d {".formatted(id));
+        int size = 10 + random.nextInt(40);
+        for (int i = 0; i < size; i++) lines.add(line());
+        lines.add("}");
+        branch.files.put(path, String.join("\n", lines) + "\n");
+    }
+
+    private void deleteClass(Branch branch) {
+        List<String> classes = classes(branch, false);
+        if (classes.size() > 6) branch.files.remove(classes.get(random.nextInt(classes.size())));
+    }
+
+    // Same contents under another module
+    private void moveClass(Branch branch) {
+        List<String> classes = classes(branch, false);
+        String path = classes.get(random.nextInt(classes.size()));
+        String target = path.replaceFirst("module(\\d)", "moved$1");
+        if (!target.equals(path)) branch.files.put(target, branch.files.remove(path));
+    }
+
+    // Inserts, deletes or replaces lines of 1-3 classes (only the reserved ones if `reservedOnly`)
+    private void change(Branch branch, boolean reservedOnly) {
+        List<String> classes = classes(branch, reservedOnly);
+        if (classes.isEmpty()) return;
+        int count = 1 + random.nextInt(3);
+        for (int c = 0; c < count; c++) {
+            String path = classes.get(random.nextInt(classes.size()));
+            List<String> lines = new ArrayList<>(Arrays.asList(branch.files.get(path).split("\n")));
+            // The body is between the declaration (line 3) and the closing brace
+            int body = lines.size() - 4;
+            int at = 3 + (body > 0 ? random.nextInt(body) : 0);
+            int length = Math.min(1 + random.nextInt(5), lines.size() - 1 - at);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    for (int i = 0; i < length; i++) lines.add(at, line());
+                }
+                case 1 -> {
+                    for (int i = 0; i < length && lines.size() > 5; i++) lines.remove(at);
+                }
+                default -> {
+                    for (int i = 0; i < length; i++) lines.set(at + i, line());
+                    if (random.nextBoolean()) lines.add(at, line());
+                }
+            }
+            branch.files.put(path, String.join("\n", lines) + "\n");
+        }
+    }
+
+    private String line() {
+        return "    int %s%d = %d;".formatted(WORDS[random.nextInt(WORDS.length)], random.nextInt(20), random.nextInt(100));
+    }
+
+    // Messages with a new key at the start, two keys in the middle, a key already used, or no key
+    private String message() {
+        int kind = random.nextInt(10);
+        String word = WORDS[random.nextInt(WORDS.length)];
+        if (kind < 5) return "%s-%d: improve %s".formatted(PROJECT, nextKey++, word);
+        if (kind < 6) {
+            String message = "Fix %s-%d and %s-%d in %s".formatted(PROJECT, nextKey, PROJECT, nextKey + 1, word);
+            nextKey += 2;
+            return message;
+        }
+        if (kind < 7 && nextKey > 1) return "%s-%d: follow-up on %s".formatted(PROJECT, 1 + random.nextInt(nextKey - 1), word);
+        return "Refactor %s".formatted(word);
+    }
+
+    private ObjectId commit(Branch branch, String message, ObjectId... merged) throws IOException {
+        time = time.plus(Duration.ofHours(6 + random.nextInt(30)));
+        String author = AUTHORS[random.nextInt(AUTHORS.length)];
+        PersonIdent ident = new PersonIdent(author, author.toLowerCase().replace(' ', '.') + "@fixture.org", time, ZONES[random.nextInt(ZONES.length)]);
+
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(writeTree(branch.files));
+        List<ObjectId> parents = new ArrayList<>();
+        if (branch.head != null) parents.add(branch.head);
+        parents.addAll(Arrays.asList(merged));
+        commit.setParentIds(parents);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage(message + "\n");
+        ObjectId id = inserter.insert(commit);
+        inserter.flush();
+        branch.head = id;
+        updateRef(branch.ref, id);
+        return id;
+    }
+
+    private ObjectId writeTree(Map<String, String> files) throws IOException {
+        DirCache index = DirCache.newInCore();
+        DirCacheBuilder builder = index.builder();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            DirCacheEntry entry = new DirCacheEntry(file.getKey());
+            entry.setFileMode(FileMode.REGULAR_FILE);
+            entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, file.getValue().getBytes(StandardCharsets.UTF_8)));
+            builder.add(entry);
+        }
+        builder.finish();
+        return index.writeTree(inserter);
+    }
+
+    // Lightweight or annotated tag
+    private void tag(ObjectId commit, String name, boolean annotated) throws IOException {
+        ObjectId id = commit;
+        if (annotated) {
+            TagBuilder tag = new TagBuilder();
+            tag.setObjectId(commit, Constants.OBJ_COMMIT);
+            tag.setTag(name);
+            tag.setTagger(new PersonIdent(AUTHORS[0], "alice.rossi@fixture.org", time, ZoneOffset.UTC));
+            tag.setMessage("Release " + name + "\n");
+            id = inserter.insert(tag);
+            inserter.flush();
+        }
+        updateRef(Constants.R_TAGS + name, id);
+    }
+
+    private void updateRef(String ref, ObjectId id) throws IOException {
+        RefUpdate update = repository.updateRef(ref);
+        update.disableRefLog();
+        update.setNewObjectId(id);
+        RefUpdate.Result result = update.forceUpdate();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.FAST_FORWARD)
+            throw new IOException("Could not update %s: %s".formatted(ref, result));
+    }
+}
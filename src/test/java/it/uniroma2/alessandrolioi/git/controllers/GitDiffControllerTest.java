@@ -0,0 +1,177 @@
+package it.uniroma2.alessandrolioi.git.controllers;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.fixtures.FixtureRepository;
+import it.uniroma2.alessandrolioi.git.Git;
+import it.uniroma2.alessandrolioi.git.models.GitCommitEntry;
+import it.uniroma2.alessandrolioi.git.models.GitDiffEntry;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Differences computed in parallel (line counts without patches, cached by pair of blobs)
+// against the single DiffFormatter building a FileHeader for every entry (before user-005 and user-010)
+class GitDiffControllerTest {
+    @TempDir
+    static Path folder;
+    private static Git git;
+    private static Repository repository;
+    // Root commit, then the release commits
+    private static List<GitCommitEntry> revisions;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        FixtureRepository fixture = FixtureRepository.create(folder);
+        git = new Git(folder.toString());
+        repository = new FileRepositoryBuilder().setGitDir(folder.resolve(".git").toFile()).build();
+        revisions = new ArrayList<>();
+        revisions.add(git.getFirstCommit());
+        for (FixtureRepository.Release release : fixture.releases()) {
+            int ordinal = git.getCommitStore().ordinalOf(repository.resolve(Constants.R_TAGS + "release-" + release.name() + "^{commit}"));
+            revisions.add(git.getCommits().get(ordinal));
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        repository.close();
+        git.close();
+    }
+
+    // Entry of the baseline: change, paths and added/deleted lines from the edit list of the patch
+    private static String describe(DiffEntry diff, int added, int deleted) {
+        return "%s %s -> %s +%d -%d".formatted(diff.getChangeType(), diff.getOldPath(), diff.getNewPath(), added, deleted);
+    }
+
+    private static String describe(GitDiffEntry entry) {
+        return describe(entry.entry(), entry.added(), entry.deleted());
+    }
+
+    private static String baselineEntry(DiffFormatter formatter, DiffEntry diff) throws Exception {
+        int added = 0;
+        int deleted = 0;
+        for (Edit edit : formatter.toFileHeader(diff).toEditList()) {
+            int lengthDifference = edit.getLengthB() - edit.getLengthA();
+            if (edit.getType() == Edit.Type.INSERT)
+                added += lengthDifference;
+            else if (edit.getType() == Edit.Type.DELETE)
+                deleted -= lengthDifference;
+            else if (edit.getType() == Edit.Type.REPLACE) {
+                if (lengthDifference > 0) added += lengthDifference;
+                else if (lengthDifference < 0) deleted += lengthDifference;
+            }
+        }
+        return describe(diff, added, deleted);
+    }
+
+    private static Map<String, String> baselineDifferences(GitCommitEntry first, GitCommitEntry second) throws Exception {
+        try (DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            formatter.setRepository(repository);
+            formatter.setPathFilter(PathSuffixFilter.create(".java"));
+            Map<String, String> differences = new HashMap<>();
+            for (DiffEntry diff : formatter.scan(first.tree(), second.tree()))
+                differences.put(diff.getNewPath(), baselineEntry(formatter, diff));
+            return differences;
+        }
+    }
+
+    private static List<String> baselineDifferencesOfClass(List<GitCommitEntry> commits, String path) throws Exception {
+        try (DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            formatter.setRepository(repository);
+            formatter.setPathFilter(PathFilter.create(path));
+            List<String> differences = new ArrayList<>();
+            for (int i = 1; i < commits.size(); i++) {
+                for (DiffEntry diff : formatter.scan(commits.get(0).tree(), commits.get(i).tree()))
+                    differences.add(baselineEntry(formatter, diff));
+            }
+            return differences;
+        }
+    }
+
+    private static Map<String, String> describe(Map<String, GitDiffEntry> differences) {
+        Map<String, String> described = new HashMap<>();
+        differences.forEach((path, entry) -> described.put(path, describe(entry)));
+        return described;
+    }
+
+    private static List<Pair<GitCommitEntry, GitCommitEntry>> pairs() {
+        List<Pair<GitCommitEntry, GitCommitEntry>> pairs = new ArrayList<>();
+        for (int i = 1; i < revisions.size(); i++) pairs.add(new Pair<>(revisions.get(i - 1), revisions.get(i)));
+        // Pairs spanning several releases (more entries, some already cached)
+        pairs.add(new Pair<>(revisions.get(0), revisions.get(revisions.size() - 1)));
+        pairs.add(new Pair<>(revisions.get(2), revisions.get(6)));
+        return pairs;
+    }
+
+    @Test
+    void parallelDifferencesOfReleasesAreTheSame() throws Exception {
+        List<Pair<GitCommitEntry, GitCommitEntry>> pairs = pairs();
+        List<Map<String, GitDiffEntry>> differences = git.getDifferences(pairs);
+        assertEquals(pairs.size(), differences.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            Map<String, String> expected = baselineDifferences(pairs.get(i).first(), pairs.get(i).second());
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, describe(differences.get(i)), "pair %d".formatted(i));
+            // Single pair, served by the cache
+            assertEquals(expected, describe(git.getDifferences(pairs.get(i).first(), pairs.get(i).second())));
+        }
+        assertTrue(git.getDiffCache().hits() > 0);
+    }
+
+    @Test
+    void parallelDifferencesOfClassesAreTheSame() throws Exception {
+        for (int i = 1; i < revisions.size(); i++) {
+            GitCommitEntry first = revisions.get(i - 1);
+            GitCommitEntry second = revisions.get(i);
+            List<String> classes = new ArrayList<>();
+            try (TreeWalk walk = new TreeWalk(repository)) {
+                walk.addTree(second.tree());
+                walk.setRecursive(true);
+                walk.setFilter(PathSuffixFilter.create(".java"));
+                while (walk.next()) classes.add(walk.getPathString());
+            }
+
+            Map<String, List<GitDiffEntry>> differences = git.getAllDifferencesOfClasses(first, second, classes);
+            for (String aClass : classes) {
+                List<String> expected = baselineDifferencesOfClass(git.getAllCommitsOfClass(first, second, aClass), aClass);
+                List<String> actual = differences.get(aClass).stream().map(GitDiffControllerTest::describe).toList();
+                assertEquals(expected, actual, aClass);
+                assertEquals(expected, git.getAllDifferencesOfClass(first, second, aClass).stream().map(GitDiffControllerTest::describe).toList());
+            }
+        }
+    }
+
+    @Test
+    void linesOfEveryClassAreTheSame() throws Exception {
+        for (GitCommitEntry revision : revisions) {
+            try (TreeWalk walk = new TreeWalk(repository)) {
+                walk.addTree(revision.tree());
+                walk.setRecursive(true);
+                walk.setFilter(TreeFilter.ALL);
+                while (walk.next()) {
+                    String path = walk.getPathString();
+                    // Baseline: number of lines of the contents
+                    int expected = git.getContentsOfClass(revision, path).split("\n").length;
+                    assertEquals(expected, git.getLinesOfClass(revision, path), path);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import it.uniroma2.alessandrolioi.fixtures.FixtureRepository;
+import it.uniroma2.alessandrolioi.git.Git;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The store against the commit list built before it (one `git log --all` per branch, then reversed)
+class GitCommitStoreTest {
+    @TempDir
+    static Path folder;
+    private static Git git;
+    private static List<RevCommit> baseline;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        FixtureRepository.create(folder);
+        git = new Git(folder.toString());
+        baseline = baselineCommits(folder);
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        git.close();
+    }
+
+    // Commits of every branch, without the duplicates of the baseline list
+    private static List<RevCommit> baselineCommits(Path folder) throws Exception {
+        List<RevCommit> entries = new ArrayList<>();
+        try (Repository repository = new FileRepositoryBuilder().setGitDir(folder.resolve(".git").toFile()).build();
+             org.eclipse.jgit.api.Git jgit = new org.eclipse.jgit.api.Git(repository)) {
+            for (Ref branch : jgit.branchList().call()) {
+                for (RevCommit commit : jgit.log().all().add(repository.resolve(branch.getName())).call())
+                    entries.add(commit);
+            }
+        }
+        Collections.reverse(entries);
+        Set<String> seen = new HashSet<>();
+        List<RevCommit> distinct = new ArrayList<>();
+        for (RevCommit commit : entries) {
+            if (seen.add(commit.getName())) distinct.add(commit);
+        }
+        return distinct;
+    }
+
+    @Test
+    void sameCommitsInTheSameOrder() {
+        List<GitCommitEntry> commits = git.getCommits();
+        assertEquals(baseline.size(), commits.size());
+        for (int i = 0; i < baseline.size(); i++)
+            assertEquals(baseline.get(i).getName(), commits.get(i).hash(), "ordinal %d".formatted(i));
+    }
+
+    @Test
+    void sameFieldsOfEveryCommit() {
+        List<GitCommitEntry> commits = git.getCommits();
+        for (int i = 0; i < baseline.size(); i++) {
+            RevCommit expected = baseline.get(i);
+            GitCommitEntry actual = commits.get(i);
+            LocalDateTime date = LocalDateTime.ofInstant(expected.getCommitterIdent().getWhenAsInstant(), expected.getCommitterIdent().getZoneId());
+            assertEquals(expected.getShortMessage(), actual.message());
+            assertEquals(date, actual.commitDate());
+            assertEquals(expected.getAuthorIdent().getName(), actual.author());
+            assertEquals(expected.getTree().getId(), actual.tree());
+            assertEquals(Arrays.stream(expected.getParents()).map(parent -> parent.getTree().getId()).toList(), actual.parents());
+        }
+    }
+
+    @Test
+    void everyMessageIsLoadedInOrder() {
+        List<String> messages = new ArrayList<>();
+        git.getCommitStore().forEachMessage((message, ordinal) -> {
+            assertEquals(messages.size(), ordinal);
+            messages.add(message);
+        });
+        assertEquals(baseline.stream().map(RevCommit::getShortMessage).toList(), messages);
+    }
+
+    @Test
+    void everyCommitIsFoundByItsId() {
+        GitCommitStore store = git.getCommitStore();
+        for (int i = 0; i < baseline.size(); i++)
+            assertEquals(i, store.ordinalOf(baseline.get(i)));
+        assertEquals(-1, store.ordinalOf(baseline.get(0).getTree()));
+    }
+
+    @Test
+    void firstCommitIsTheRootOfHead() throws Exception {
+        RevCommit root = baseline.stream().filter(commit -> commit.getParentCount() == 0).findFirst().orElseThrow();
+        assertEquals(root.getName(), git.getFirstCommit().hash());
+    }
+}
@@ -0,0 +1,79 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Date queries of the timeline against the date filter scanning every commit (FilterController before user-022)
+class GitCommitTimelineTest {
+    private static final Instant START = Instant.parse("2011-03-01T00:00:00Z");
+    private static final String TREE = ObjectId.zeroId().getName();
+
+    // Commit with the committer time and timezone (minutes)
+    private static RevCommit commit(int number, long time, int timeZone) {
+        String zone = "%s%02d%02d".formatted(timeZone < 0 ? "-" : "+", Math.abs(timeZone) / 60, Math.abs(timeZone) % 60);
+        String raw = "tree %s\nauthor A <a@b.c> %d %s\ncommitter C <c@b.c> %d %s\n\nCommit %d\n"
+                .formatted(TREE, time, zone, time, zone, number);
+        return RevCommit.parse(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Commits every few hours, in every timezone, some of them with a clock behind by up to two days
+    private static List<RevCommit> commits(long seed) {
+        Random random = new Random(seed);
+        List<RevCommit> commits = new ArrayList<>();
+        long time = START.getEpochSecond();
+        for (int i = 0; i < 2000; i++) {
+            time += random.nextInt(12 * 3600);
+            long skew = random.nextInt(20) == 0 ? random.nextInt(2 * 86400) : 0;
+            int timeZone = (random.nextInt(27) - 12) * 60 + (random.nextInt(8) == 0 ? 30 : 0);
+            commits.add(commit(i, time - skew, timeZone));
+        }
+        return commits;
+    }
+
+    // First commit with local date not before the end of `releaseDate` (in the order of the list)
+    private static int baseline(LocalDate releaseDate, List<RevCommit> commits) {
+        for (int i = 0; i < commits.size(); i++) {
+            RevCommit commit = commits.get(i);
+            LocalDateTime date = LocalDateTime.ofInstant(commit.getCommitterIdent().getWhenAsInstant(), commit.getCommitterIdent().getZoneId());
+            if (!date.isBefore(releaseDate.atTime(LocalTime.MAX))) return i;
+        }
+        return -1;
+    }
+
+    @Test
+    void sameCommitsOfTheDateFilter() {
+        for (long seed = 1; seed <= 3; seed++) {
+            List<RevCommit> commits = commits(seed);
+            GitCommitTimeline timeline = new GitCommitTimeline(new GitCommitStore(commits, (count, ids, action) -> { }));
+            LocalDate last = LocalDate.ofInstant(commits.get(commits.size() - 1).getCommitterIdent().getWhenAsInstant(), ZoneOffset.UTC);
+            int found = 0;
+            for (LocalDate date = LocalDate.ofInstant(START, ZoneOffset.UTC).minusDays(3); !date.isAfter(last.plusDays(3)); date = date.plusDays(1)) {
+                int expected = baseline(date, commits);
+                assertEquals(expected, timeline.firstFrom(date.plusDays(1).atStartOfDay()), "%s (seed %d)".formatted(date, seed));
+                if (expected != -1) found++;
+            }
+            assertTrue(found > 0);
+        }
+    }
+
+    @Test
+    void noCommitAfterTheLastOne() {
+        GitCommitTimeline timeline = new GitCommitTimeline(new GitCommitStore(List.of(commit(0, START.getEpochSecond(), 120)), (count, ids, action) -> { }));
+        assertEquals(0, timeline.firstFrom(LocalDateTime.of(2011, 3, 1, 2, 0)));
+        assertEquals(-1, timeline.firstFrom(LocalDateTime.of(2011, 3, 1, 2, 1)));
+        assertEquals(-1, new GitCommitTimeline(new GitCommitStore(List.of(), (count, ids, action) -> { })).firstFrom(LocalDateTime.MIN));
+    }
+}
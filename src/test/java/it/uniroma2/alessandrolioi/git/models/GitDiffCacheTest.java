@@ -0,0 +1,124 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitDiffCacheTest {
+    private static final int THRESHOLD = 1024;
+
+    @TempDir
+    Path folder;
+
+    // Blob ids are uniformly distributed, like the ones of a repository
+    private static ObjectId id(int value) {
+        try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+            return formatter.idFor(Constants.OBJ_BLOB, Integer.toString(value).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void put(GitDiffCache cache, int pair) throws Exception {
+        cache.put(id(2 * pair), id(2 * pair + 1), pair, pair + 1);
+    }
+
+    private static Pair<Integer, Integer> get(GitDiffCache cache, int pair) throws Exception {
+        return cache.get(id(2 * pair), id(2 * pair + 1));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() throws Exception {
+        GitDiffCache cache = new GitDiffCache(3, THRESHOLD);
+        put(cache, 1);
+        put(cache, 2);
+        put(cache, 3);
+        // 1 becomes the most recently used: 2 is evicted by the next entry
+        assertEquals(new Pair<>(1, 2), get(cache, 1));
+        put(cache, 4);
+        assertNull(get(cache, 2));
+        assertEquals(new Pair<>(1, 2), get(cache, 1));
+        assertEquals(new Pair<>(3, 4), get(cache, 3));
+        assertEquals(new Pair<>(4, 5), get(cache, 4));
+        assertEquals(4, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void segmentsKeepAtMostTheCapacity() throws Exception {
+        int capacity = 16 * 64;
+        GitDiffCache cache = new GitDiffCache(capacity, THRESHOLD);
+        for (int i = 0; i < 4 * capacity; i++) put(cache, i);
+        int remembered = 0;
+        for (int i = 0; i < 4 * capacity; i++) {
+            if (get(cache, i) != null) remembered++;
+        }
+        assertTrue(remembered <= capacity, "%d entries".formatted(remembered));
+        // The most recent entries of every segment are kept
+        assertTrue(remembered >= capacity / 2, "%d entries".formatted(remembered));
+    }
+
+    @Test
+    void entriesArePersistedAcrossRuns() throws Exception {
+        Path file = folder.resolve("diffs.bin");
+        GitDiffCache first = new GitDiffCache(2, THRESHOLD);
+        first.open(file);
+        for (int i = 0; i < 10; i++) put(first, i);
+        first.close();
+
+        GitDiffCache second = new GitDiffCache(2, THRESHOLD);
+        second.open(file);
+        for (int i = 0; i < 10; i++) assertEquals(new Pair<>(i, i + 1), get(second, i));
+        assertEquals(10, second.diskHits());
+        second.close();
+    }
+
+    @Test
+    void entriesOfAnotherThresholdAreDiscarded() throws Exception {
+        Path file = folder.resolve("diffs.bin");
+        GitDiffCache first = new GitDiffCache(2, THRESHOLD);
+        first.open(file);
+        put(first, 1);
+        first.close();
+
+        GitDiffCache second = new GitDiffCache(2, 2 * THRESHOLD);
+        second.open(file);
+        assertNull(get(second, 1));
+        second.close();
+    }
+
+    @Test
+    void partialRecordIsDropped() throws Exception {
+        Path file = folder.resolve("diffs.bin");
+        GitDiffCache first = new GitDiffCache(2, THRESHOLD);
+        first.open(file);
+        put(first, 1);
+        put(first, 2);
+        first.close();
+        // Interrupted while appending the second record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        GitDiffCache second = new GitDiffCache(2, THRESHOLD);
+        second.open(file);
+        assertEquals(new Pair<>(1, 2), get(second, 1));
+        assertNull(get(second, 2));
+        put(second, 2);
+        second.close();
+
+        GitDiffCache third = new GitDiffCache(2, THRESHOLD);
+        third.open(file);
+        assertEquals(new Pair<>(2, 3), get(third, 2));
+        third.close();
+    }
+}
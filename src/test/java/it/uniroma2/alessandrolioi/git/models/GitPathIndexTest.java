@@ -0,0 +1,119 @@
+package it.uniroma2.alessandrolioi.git.models;
+
+import it.uniroma2.alessandrolioi.fixtures.FixtureRepository;
+import it.uniroma2.alessandrolioi.git.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Per-class commit ranges of the path index against `git log first..second -- path` (JGit log, used before the index)
+class GitPathIndexTest {
+    @TempDir
+    static Path folder;
+    private static FixtureRepository fixture;
+    private static Git git;
+    private static Repository repository;
+    // Root commit, then the release commits
+    private static List<GitCommitEntry> revisions;
+    private static SortedSet<String> classes;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        fixture = FixtureRepository.create(folder);
+        git = new Git(folder.toString());
+        repository = new FileRepositoryBuilder().setGitDir(folder.resolve(".git").toFile()).build();
+
+        GitCommitStore store = git.getCommitStore();
+        revisions = new ArrayList<>();
+        revisions.add(git.getFirstCommit());
+        classes = new TreeSet<>();
+        for (FixtureRepository.Release release : fixture.releases()) {
+            ObjectId id = repository.resolve(Constants.R_TAGS + "release-" + release.name() + "^{commit}");
+            GitCommitEntry revision = git.getCommits().get(store.ordinalOf(id));
+            revisions.add(revision);
+            try (TreeWalk walk = new TreeWalk(repository)) {
+                walk.addTree(revision.tree());
+                walk.setRecursive(true);
+                while (walk.next()) {
+                    if (walk.getPathString().endsWith(".java")) classes.add(walk.getPathString());
+                }
+            }
+        }
+        classes.add(fixture.discardedClass());
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        repository.close();
+        git.close();
+    }
+
+    private static List<String> baseline(GitCommitEntry first, GitCommitEntry second, String path) throws Exception {
+        List<String> hashes = new ArrayList<>();
+        try (org.eclipse.jgit.api.Git jgit = new org.eclipse.jgit.api.Git(repository)) {
+            for (RevCommit commit : jgit.log().addRange(ObjectId.fromString(first.hash()), ObjectId.fromString(second.hash())).addPath(path).call())
+                hashes.add(commit.getName());
+        }
+        return hashes;
+    }
+
+    // Commits of the branch merged with `-s ours` (reachable from the second parent of its merge, not from the first)
+    private static Set<String> discardedCommits() throws Exception {
+        try (org.eclipse.jgit.api.Git jgit = new org.eclipse.jgit.api.Git(repository); RevWalk walk = new RevWalk(repository)) {
+            RevCommit merge = null;
+            for (RevCommit commit : jgit.log().call()) {
+                if (commit.getShortMessage().equals("Merge branch 'discarded'")) merge = commit;
+            }
+            assertNotNull(merge);
+            walk.markStart(walk.parseCommit(merge.getParent(1)));
+            walk.markUninteresting(walk.parseCommit(merge.getParent(0)));
+            Set<String> hashes = new HashSet<>();
+            for (RevCommit commit : walk) hashes.add(commit.getName());
+            return hashes;
+        }
+    }
+
+    @Test
+    void sameCommitsAsTheLogOfThePath() throws Exception {
+        Set<String> discarded = discardedCommits();
+        int compared = 0;
+        int divergent = 0;
+        for (int i = 0; i < revisions.size(); i++) {
+            for (int j = i + 1; j < revisions.size(); j++) {
+                GitCommitEntry first = revisions.get(i);
+                GitCommitEntry second = revisions.get(j);
+                for (String aClass : classes) {
+                    List<String> expected = baseline(first, second, aClass);
+                    List<String> actual = git.getAllCommitsOfClass(first, second, aClass).stream().map(GitCommitEntry::hash).toList();
+                    compared++;
+                    if (actual.equals(expected)) continue;
+
+                    // Known divergence: the log simplifies away the branch whose changes the merge discarded
+                    // (the merge is TREESAME to its first parent), the index keeps every reachable commit touching the path
+                    divergent++;
+                    assertEquals(fixture.discardedClass(), aClass);
+                    Set<String> extra = new HashSet<>(actual);
+                    expected.forEach(extra::remove);
+                    assertEquals(discarded, extra, "%s..%s".formatted(first.hash(), second.hash()));
+                    assertTrue(actual.containsAll(expected));
+                }
+            }
+        }
+        assertEquals(36 * classes.size(), compared);
+        // Ranges from a revision before the merge (the root and the first 4 releases) to one after it (the last 4 releases)
+        assertEquals(5 * 4, divergent);
+    }
+}
@@ -0,0 +1,138 @@
+package it.uniroma2.alessandrolioi.integration.models;
+
+import it.uniroma2.alessandrolioi.fixtures.FixtureRepository;
+import it.uniroma2.alessandrolioi.git.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Lookups of the index against the filters scanning every message (FilterController before user-021)
+class CommitMessageIndexTest {
+    // Messages in the style of the release and fix commits of BookKeeper and Avro
+    // (their histories cannot be cloned in the test, so they are written here)
+    private static final List<String> MESSAGES = List.of(
+            "Initial import",
+            "BOOKKEEPER-1: Fix the ledger recovery",
+            "BOOKKEEPER-12: Add the bookie journal",
+            "Merge BOOKKEEPER-1 into trunk",
+            "BOOKKEEPER-1 follow-up: remove the unused import",
+            "Preparing BookKeeper 4.0.0 release",
+            "BookKeeper 4.0.0 release",
+            "AVRO-100. Fix the schema resolution. Contributed by someone.",
+            "AVRO-1000. Java: add the specific compiler",
+            "Tag the 1.7.0 release",
+            "Tagging 1.7.1 rc0",
+            "Tagging 1.7.1 rc1",
+            "Tagging 1.7.1 release",
+            "Tagged 1.7.2",
+            "[maven-release-plugin] prepare release release-1.7.3",
+            "Tag release-1.7.3",
+            "Tags for 1.7.4 and 1.7.5 release",
+            "Tag 1x7x6",
+            "Tagging 1.7.10",
+            "BookKeeper 4.1.0 release candidate",
+            "BookKeeper 4.1.0 release",
+            "Revert \"BookKeeper 4.1.0 release\"",
+            "Tag\n1.7.7",
+            "AVRO-2000",
+            "AVRO-2000: after the release",
+            "avro-3000 lower case key",
+            "\tAVRO-4000 indented",
+            "");
+    private static final List<String> NAMES = List.of("4.0.0", "4.1.0", "4.2.0", "1.7.0", "1.7.1", "1.7.2", "1.7.3",
+            "release-1.7.3", "1.7.4", "1.7.5", "1.7.6", "1.7.7", "1.7.1", "1.7.10", "1.7", "1", "7.1", "release");
+    private static final List<String> KEYS = List.of("BOOKKEEPER-1", "BOOKKEEPER-12", "BOOKKEEPER-2", "AVRO-100", "AVRO-10",
+            "AVRO-1000", "AVRO-2000", "AVRO-3000", "AVRO-4000", "AVRO", "Merge", "Tag", "");
+
+    @TempDir
+    Path folder;
+
+    private static List<String> messagesOf(String repository) throws Exception {
+        List<String> messages = new ArrayList<>();
+        Git git = new Git(repository);
+        git.getCommitStore().forEachMessage((message, ordinal) -> messages.add(message));
+        git.close();
+        return messages;
+    }
+
+    private static CommitMessageIndex indexOf(List<String> messages) {
+        return new CommitMessageIndex(action -> {
+            for (int i = 0; i < messages.size(); i++) action.accept(messages.get(i), i);
+        });
+    }
+
+    // Last commit matching the semantic filter (-1 instead of NotFoundException)
+    private static int baselineRelease(String name, List<String> messages) {
+        Pattern avroPattern = Pattern.compile("Tag.* %s(| release)".formatted(name));
+        int last = -1;
+        for (int i = 0; i < messages.size(); i++) {
+            String message = messages.get(i);
+            if (avroPattern.matcher(message).find() || message.contains("BookKeeper %s release".formatted(name)))
+                last = i;
+        }
+        return last;
+    }
+
+    // First commit matching the semantic key filter
+    private static int baselineKey(String key, List<String> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i).startsWith(key)) return i;
+        }
+        return -1;
+    }
+
+    private static void assertSameLookups(List<String> messages, Collection<String> names, Collection<String> keys) {
+        CommitMessageIndex index = indexOf(messages);
+        for (String name : names)
+            assertEquals(baselineRelease(name, messages), index.lastWithRelease(name), "release %s".formatted(name));
+        for (String key : keys)
+            assertEquals(baselineKey(key, messages), index.firstWithKey(key), "key %s".formatted(key));
+    }
+
+    @Test
+    void sameCommitsOfTheRepresentativeMessages() {
+        assertSameLookups(MESSAGES, NAMES, KEYS);
+        // The name is part of the regex, as before
+        assertEquals(MESSAGES.indexOf("Tag 1x7x6"), indexOf(MESSAGES).lastWithRelease("1.7.6"));
+    }
+
+    @Test
+    void sameCommitsOfTheFixtureRepository() throws Exception {
+        FixtureRepository fixture = FixtureRepository.create(folder);
+        List<String> messages = messagesOf(folder.toString());
+        List<String> names = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        fixture.releases().forEach(release -> names.add(release.name()));
+        names.add("3.0");
+        for (int i = 1; i <= fixture.keys() + 10; i++) keys.add("%s-%d".formatted(FixtureRepository.PROJECT, i));
+        assertTrue(indexOf(messages).lastWithRelease(names.get(0)) != -1);
+        assertSameLookups(messages, names, keys);
+    }
+
+    // Any local repository, i.e. a clone of BookKeeper or Avro: `-Dindex.repository=<path>`
+    @Test
+    void sameCommitsOfALocalRepository() throws Exception {
+        String repository = System.getProperty("index.repository");
+        assumeTrue(repository != null && !repository.isBlank());
+        List<String> messages = messagesOf(repository);
+        // Candidate names: every token after `Tag` or `BookKeeper`; candidate keys: the first token of every message
+        Set<String> names = new TreeSet<>();
+        Set<String> keys = new TreeSet<>();
+        for (String message : messages) {
+            String[] tokens = message.split("\\s+");
+            for (int i = 1; i < tokens.length; i++) {
+                // Only names that are valid regexes, like the names of the Jira versions
+                if ((tokens[i - 1].startsWith("Tag") || tokens[i - 1].equals("BookKeeper")) && tokens[i].matches("[\\w.-]+"))
+                    names.add(tokens[i]);
+            }
+            if (tokens[0].matches("[A-Z]+-\\d+\\W?")) keys.add(tokens[0].replaceAll("\\W$", ""));
+        }
+        assertSameLookups(messages, names, keys);
+    }
+}
@@ -0,0 +1,190 @@
+package it.uniroma2.alessandrolioi.jira.controllers;
+
+import it.uniroma2.alessandrolioi.common.Pair;
+import it.uniroma2.alessandrolioi.jira.models.JiraIssue;
+import it.uniroma2.alessandrolioi.jira.models.JiraVersion;
+import it.uniroma2.alessandrolioi.jira.stub.JiraStubServer;
+import it.uniroma2.alessandrolioi.jira.stub.JiraStubSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pages loaded concurrently against the serial load (a single thread, one page after the other, as before user-012),
+// from a stub answering slowly and failing some of the requests (retried by JiraRestController).
+// Classification of the issues against the linear search of the versions (before user-017)
+class JiraIssueControllerTest {
+    private static final LocalDate FIRST = LocalDate.of(2010, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2013, 1, 1);
+
+    private static JiraStubServer stub;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        // 600 issues per project in pages of 25, 20% of the requests fail
+        stub = new JiraStubServer(new JiraStubSettings(0, 8, 20, 25, 0.2, 600, 20, null, null));
+        stub.start();
+        System.setProperty("jira.url", stub.url());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        System.clearProperty("jira.url");
+        stub.stop();
+    }
+
+    @AfterEach
+    void resetParallelism() {
+        System.clearProperty("jira.parallelism");
+    }
+
+    // Every field read from the page, so the same issues have the same description
+    private static List<String> describe(List<JiraIssue> issues) {
+        return issues.stream().map(issue -> "%s %s %s %s".formatted(issue.getKey(), issue.getCreated(),
+                issue.getResolution(), issue.getAffectedVersionsDates())).toList();
+    }
+
+    private static List<String> loadProject(int parallelism) throws Exception {
+        System.setProperty("jira.parallelism", Integer.toString(parallelism));
+        return describe(new JiraIssueController().loadIssues("BOOKKEEPER", "", FIRST, LAST));
+    }
+
+    private static Map<String, List<String>> loadProjects(int parallelism) throws Exception {
+        System.setProperty("jira.parallelism", Integer.toString(parallelism));
+        Map<String, Pair<LocalDate, LocalDate>> ranges = Map.of(
+                "BOOKKEEPER", new Pair<>(FIRST, LAST),
+                "AVRO", new Pair<>(FIRST, LocalDate.of(2011, 6, 1)));
+        Map<String, List<String>> issues = new HashMap<>();
+        new JiraIssueController().loadIssues(ranges).forEach((project, list) -> issues.put(project, describe(list)));
+        return issues;
+    }
+
+    @Test
+    void parallelPagesOfAProjectAreInTheSameOrder() throws Exception {
+        long retries = JiraRestController.stats().retries();
+        List<String> serial = loadProject(1);
+        List<String> parallel = loadProject(8);
+        assertTrue(serial.size() > 25, "%d issues".formatted(serial.size()));
+        assertEquals(serial, parallel);
+        assertTrue(JiraRestController.stats().retries() > retries);
+    }
+
+    @Test
+    void parallelPagesOfSeveralProjectsAreInTheSameOrder() throws Exception {
+        Map<String, List<String>> serial = loadProjects(1);
+        Map<String, List<String>> parallel = loadProjects(8);
+        assertEquals(2, serial.size());
+        assertFalse(serial.get("AVRO").isEmpty());
+        assertEquals(serial, parallel);
+        // Issues of a project are the same of its own query
+        assertEquals(loadProject(8), serial.get("BOOKKEEPER"));
+    }
+
+    private static List<JiraVersion> copyOfVersions(List<JiraVersion> versions) {
+        return versions.stream().map(version -> new JiraVersion(version.name(), version.releaseDate())).toList();
+    }
+
+    private static List<JiraIssue> copyOfIssues(List<JiraIssue> issues) {
+        return issues.stream().map(issue -> new JiraIssue(issue.getKey(), issue.getResolution(), issue.getCreated(),
+                new ArrayList<>(issue.getAffectedVersionsDates()))).toList();
+    }
+
+    // Classification before user-017: the versions of every issue are searched from the first one
+    private static void baselineClassify(List<JiraVersion> versions, List<JiraIssue> issues) {
+        for (JiraIssue issue : issues) {
+            LocalDate firstReleaseDate = versions.get(0).releaseDate();
+            if (issue.getCreated().isBefore(firstReleaseDate) && issue.getResolution().isBefore(firstReleaseDate))
+                continue;
+            int injected = -1;
+            int opening = -1;
+            int fix = -1;
+            for (int i = 0; i < versions.size(); i++) {
+                JiraVersion version = versions.get(i);
+                if (injected == -1 && !issue.getAffectedVersionsDates().isEmpty() && issue.getAffectedVersionsDates().get(0).isEqual(version.releaseDate()))
+                    injected = i;
+                if (opening == -1 && version.releaseDate().isAfter(issue.getCreated())) opening = i;
+                if (fix == -1 && !version.releaseDate().isBefore(issue.getResolution())) fix = i;
+                if (injected != -1 && opening != -1 && fix != -1) break;
+            }
+            if (!issue.getAffectedVersionsDates().isEmpty() && issue.getAffectedVersionsDates().get(0).isAfter(versions.get(fix).releaseDate())) {
+                issue.getAffectedVersionsDates().clear();
+                injected = -1;
+            }
+            if (injected == -1 && opening == 0) injected = opening;
+            if (injected != -1) {
+                issue.setIvIndex(injected);
+                versions.get(injected).injected().add(issue);
+            }
+            issue.setOvIndex(opening);
+            issue.setFvIndex(fix);
+            versions.get(opening).opened().add(issue);
+            versions.get(fix).fixed().add(issue);
+        }
+    }
+
+    private static List<String> keysOf(List<JiraIssue> issues) {
+        return issues.stream().map(JiraIssue::getKey).toList();
+    }
+
+    private static void assertSameClassification(List<JiraVersion> versions, List<JiraIssue> issues) {
+        List<JiraVersion> expectedVersions = copyOfVersions(versions);
+        List<JiraIssue> expectedIssues = copyOfIssues(issues);
+        baselineClassify(expectedVersions, expectedIssues);
+        List<JiraVersion> actualVersions = copyOfVersions(versions);
+        List<JiraIssue> actualIssues = copyOfIssues(issues);
+        new JiraIssueController().classifyIssues(actualVersions, actualIssues);
+
+        for (int i = 0; i < issues.size(); i++) {
+            JiraIssue expected = expectedIssues.get(i);
+            JiraIssue actual = actualIssues.get(i);
+            assertEquals(List.of(expected.getIvIndex(), expected.getOvIndex(), expected.getFvIndex()),
+                    List.of(actual.getIvIndex(), actual.getOvIndex(), actual.getFvIndex()), expected.getKey());
+            assertEquals(expected.getAffectedVersionsDates(), actual.getAffectedVersionsDates(), expected.getKey());
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(keysOf(expectedVersions.get(i).injected()), keysOf(actualVersions.get(i).injected()), "injected in %d".formatted(i));
+            assertEquals(keysOf(expectedVersions.get(i).opened()), keysOf(actualVersions.get(i).opened()), "opened in %d".formatted(i));
+            assertEquals(keysOf(expectedVersions.get(i).fixed()), keysOf(actualVersions.get(i).fixed()), "fixed in %d".formatted(i));
+        }
+    }
+
+    @Test
+    void sameClassificationOfTheStubIssues() throws Exception {
+        List<JiraVersion> versions = new JiraVersionController().loadVersions("BOOKKEEPER");
+        LocalDate last = versions.get(versions.size() - 1).releaseDate();
+        List<JiraIssue> issues = new JiraIssueController().loadIssues("BOOKKEEPER", "", versions.get(0).releaseDate(), last);
+        assertFalse(issues.isEmpty());
+        assertSameClassification(versions, issues);
+    }
+
+    @Test
+    void sameClassificationOfTheEdgeCases() {
+        LocalDate first = LocalDate.of(2012, 1, 10);
+        // Two versions released on the same day
+        List<JiraVersion> versions = List.of(new JiraVersion("1.0", first), new JiraVersion("1.1", first.plusDays(30)),
+                new JiraVersion("1.1.1", first.plusDays(30)), new JiraVersion("1.2", first.plusDays(60)));
+        List<JiraIssue> issues = List.of(
+                // Created and resolved before the first release: skipped
+                new JiraIssue("E-1", first.minusDays(1), first.minusDays(5), new ArrayList<>()),
+                // Created before the first release, resolved after it: IV derived from OV
+                new JiraIssue("E-2", first.plusDays(3), first.minusDays(5), new ArrayList<>()),
+                // Created and resolved on release days
+                new JiraIssue("E-3", first.plusDays(30), first, new ArrayList<>(List.of(first))),
+                // Affected version after the fix version: cleared
+                new JiraIssue("E-4", first.plusDays(20), first.plusDays(10), new ArrayList<>(List.of(first.plusDays(60)))),
+                // Affected version not released on any version day
+                new JiraIssue("E-5", first.plusDays(50), first.plusDays(31), new ArrayList<>(List.of(first.plusDays(2)))),
+                // Affected version of the two versions released on the same day
+                new JiraIssue("E-6", first.plusDays(60), first.plusDays(35), new ArrayList<>(List.of(first.plusDays(30), first.plusDays(60)))),
+                new JiraIssue("E-7", first.plusDays(60), first.plusDays(59), new ArrayList<>()));
+        assertSameClassification(versions, issues);
+    }
+}
@@ -0,0 +1,144 @@
+package it.uniroma2.alessandrolioi.jira.models;
+
+import it.uniroma2.alessandrolioi.jira.Jira;
+import it.uniroma2.alessandrolioi.jira.controllers.JiraIssueController;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Proportion of the engine (also with tickets appended after the first update) against the proportion
+// applied to every release at once (JiraProportionController before user-018)
+class JiraProportionEngineTest {
+    private static final LocalDate FIRST = LocalDate.of(2012, 3, 1);
+    private static final int VERSIONS = 20;
+    private static final double COLD_START = 1.6;
+
+    private static List<JiraVersion> versions() {
+        List<JiraVersion> versions = new ArrayList<>();
+        for (int i = 0; i < VERSIONS; i++) versions.add(new JiraVersion("1.%d".formatted(i), FIRST.plusDays(45L * i)));
+        return versions;
+    }
+
+    // Issues created and resolved between the releases; about half of them with an affected version
+    private static List<JiraIssue> issues(long seed) {
+        Random random = new Random(seed);
+        LocalDate last = FIRST.plusDays(45L * (VERSIONS - 1));
+        List<JiraIssue> issues = new ArrayList<>();
+        for (int i = 1; i <= 600; i++) {
+            LocalDate created = FIRST.plusDays(random.nextInt(45 * (VERSIONS - 1)) - 20L);
+            LocalDate resolution = created.plusDays(random.nextInt(150));
+            if (resolution.isAfter(last)) resolution = last;
+            List<LocalDate> affected = new ArrayList<>();
+            int opening = (int) Math.max(0, Math.ceil((created.toEpochDay() - FIRST.toEpochDay() + 1) / 45.0));
+            if (random.nextInt(2) == 0)
+                affected.add(FIRST.plusDays(45L * Math.max(0, opening - random.nextInt(3))));
+            // Affected version after the fix version (cleared by the classification)
+            if (random.nextInt(40) == 0) affected.add(0, last);
+            issues.add(new JiraIssue("P-%d".formatted(i), resolution, created, affected));
+        }
+        return issues;
+    }
+
+    private static List<JiraIssue> copyOf(List<JiraIssue> issues) {
+        List<JiraIssue> copies = new ArrayList<>();
+        for (JiraIssue issue : issues)
+            copies.add(new JiraIssue(issue.getKey(), issue.getResolution(), issue.getCreated(), new ArrayList<>(issue.getAffectedVersionsDates())));
+        return copies;
+    }
+
+    // Proportion before user-018: every release, from the first one
+    private static void baselineProportion(List<JiraVersion> versions, double proportionColdStart) {
+        double lastSum = 0f;
+        int totalIssues = 0;
+        for (JiraVersion version : versions) {
+            List<JiraIssue> valid = version.fixed().stream().filter(i -> i.getIvIndex() != -1).toList();
+            double proportion = proportionColdStart;
+            if (valid.size() >= 5) {
+                double currentSum = valid.stream().map(JiraIssue::calculateProportion).reduce(0.0, Double::sum);
+                proportion = (lastSum + currentSum) / (totalIssues + valid.size());
+                lastSum += currentSum;
+            }
+            List<JiraIssue> invalid = new ArrayList<>(version.fixed());
+            invalid.removeAll(valid);
+            for (JiraIssue invalidIssue : invalid) {
+                int iv = (int) (invalidIssue.getFvIndex() - invalidIssue.getFvMinusOv() * proportion);
+                invalidIssue.setIvIndex(iv);
+                lastSum += invalidIssue.calculateProportion();
+                versions.get(iv).injected().add(invalidIssue);
+            }
+            totalIssues += version.opened().size();
+        }
+    }
+
+    private static List<JiraVersion> baseline(List<JiraIssue> issues) {
+        List<JiraVersion> versions = versions();
+        new JiraIssueController().classifyIssues(versions, issues);
+        baselineProportion(versions, COLD_START);
+        return versions;
+    }
+
+    private static Map<String, Integer> injectedVersions(List<JiraIssue> issues) {
+        Map<String, Integer> injected = new HashMap<>();
+        for (JiraIssue issue : issues) injected.put(issue.getKey(), issue.getIvIndex());
+        return injected;
+    }
+
+    private static List<Set<String>> injectedKeys(List<JiraVersion> versions) {
+        return versions.stream().map(version -> {
+            Set<String> keys = new HashSet<>();
+            version.injected().forEach(issue -> keys.add(issue.getKey()));
+            return keys;
+        }).toList();
+    }
+
+    @Test
+    void sameInjectedVersionsOfEveryRelease() {
+        for (long seed = 1; seed <= 5; seed++) {
+            List<JiraIssue> expectedIssues = copyOf(issues(seed));
+            List<JiraVersion> expected = baseline(expectedIssues);
+
+            List<JiraIssue> actualIssues = copyOf(issues(seed));
+            List<JiraVersion> actual = versions();
+            Jira jira = new Jira(actual, actualIssues);
+            jira.applyProportion(COLD_START);
+            // Nothing left to process
+            jira.applyProportion(COLD_START);
+
+            assertEquals(injectedVersions(expectedIssues), injectedVersions(actualIssues), "seed %d".formatted(seed));
+            for (int i = 0; i < VERSIONS; i++) {
+                List<String> expectedKeys = expected.get(i).injected().stream().map(JiraIssue::getKey).toList();
+                assertEquals(expectedKeys, actual.get(i).injected().stream().map(JiraIssue::getKey).toList(), "seed %d".formatted(seed));
+            }
+        }
+    }
+
+    @Test
+    void appendedTicketsGiveTheSameInjectedVersions() {
+        for (long seed = 1; seed <= 5; seed++) {
+            // Tickets resolved after the cut are loaded later (some of them opened in releases already processed)
+            LocalDate cut = FIRST.plusDays(45L * 12);
+            List<JiraIssue> issues = issues(seed);
+            List<JiraIssue> initial = new ArrayList<>(issues.stream().filter(issue -> issue.getResolution().isBefore(cut)).toList());
+            List<JiraIssue> later = issues.stream().filter(issue -> !issue.getResolution().isBefore(cut)).toList();
+            assertFalse(later.isEmpty());
+
+            // Every ticket at once, in the order they are added
+            List<JiraIssue> expectedIssues = copyOf(initial);
+            expectedIssues.addAll(copyOf(later));
+            List<JiraVersion> expected = baseline(expectedIssues);
+
+            List<JiraVersion> actual = versions();
+            Jira jira = new Jira(actual, initial);
+            jira.applyProportion(COLD_START);
+            jira.addIssues(later.subList(0, later.size() / 2));
+            jira.addIssues(later.subList(later.size() / 2, later.size()));
+
+            // Same IV of every ticket; injected lists only differ in the order of the estimated tickets
+            assertEquals(injectedVersions(expectedIssues), injectedVersions(issues), "seed %d".formatted(seed));
+            assertEquals(injectedKeys(expected), injectedKeys(actual), "seed %d".formatted(seed));
+        }
+    }
+}
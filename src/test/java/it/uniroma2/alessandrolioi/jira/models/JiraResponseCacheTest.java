@@ -0,0 +1,90 @@
+package it.uniroma2.alessandrolioi.jira.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JiraResponseCacheTest {
+    private static final String URL = "https://issues.apache.org/jira/rest/api/2/search?startAt=0&jql=project=AVRO";
+
+    @TempDir
+    Path folder;
+
+    // The only file of the folder with the extension (one entry per test)
+    private Path file(String extension) throws Exception {
+        try (Stream<Path> files = Files.list(folder)) {
+            List<Path> matching = files.filter(path -> path.toString().endsWith(extension)).toList();
+            assertEquals(1, matching.size());
+            return matching.get(0);
+        }
+    }
+
+    @Test
+    void savedResponseIsReturned() throws Exception {
+        JiraResponseCache cache = new JiraResponseCache(folder);
+        assertNull(cache.get(URL));
+        cache.put(URL, "{\"total\":1}", "\"v1\"", null);
+        // Same URL with the parameters in another order
+        JiraResponseCache.Entry entry = new JiraResponseCache(folder).get("HTTPS://issues.apache.org/jira/rest/api/2/search?jql=project=AVRO&startAt=0");
+        assertNotNull(entry);
+        assertEquals("{\"total\":1}", entry.body());
+        assertEquals("\"v1\"", entry.etag());
+        assertNull(entry.lastModified());
+    }
+
+    @Test
+    void bodyWithoutItsMetaIsNotUsed() throws Exception {
+        JiraResponseCache cache = new JiraResponseCache(folder);
+        cache.put(URL, "{\"total\":1}", null, null);
+        // Interrupted after moving the body of the next response, before moving its meta
+        Files.writeString(file(".json"), "{\"total\":2}");
+        assertNull(cache.get(URL));
+        // Same length, different contents
+        Files.writeString(file(".json"), "{\"total\":3}");
+        assertNull(cache.get(URL));
+
+        cache.put(URL, "{\"total\":2}", null, null);
+        assertEquals("{\"total\":2}", cache.get(URL).body());
+    }
+
+    @Test
+    void metaWithoutChecksumIsNotUsed() throws Exception {
+        JiraResponseCache cache = new JiraResponseCache(folder);
+        cache.put(URL, "{\"total\":1}", null, null);
+        // Meta saved before the checksum was added
+        Path meta = file(".meta");
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(meta)) {
+            properties.load(input);
+        }
+        properties.remove("sha256");
+        try (OutputStream output = Files.newOutputStream(meta)) {
+            properties.store(output, null);
+        }
+        assertNull(cache.get(URL));
+    }
+
+    @Test
+    void revalidatedResponseIsStillValid() throws Exception {
+        JiraResponseCache cache = new JiraResponseCache(folder);
+        cache.put(URL, "{\"total\":1}", "\"v1\"", "Tue, 01 Aug 2023 10:00:00 GMT");
+        JiraResponseCache.Entry entry = cache.get(URL);
+        Thread.sleep(5);
+        cache.touch(entry);
+        JiraResponseCache.Entry touched = cache.get(URL);
+        assertNotNull(touched);
+        assertEquals(entry.body(), touched.body());
+        assertEquals(entry.etag(), touched.etag());
+        assertEquals(entry.lastModified(), touched.lastModified());
+        assertTrue(touched.fetchedAt().isAfter(entry.fetchedAt()));
+    }
+}